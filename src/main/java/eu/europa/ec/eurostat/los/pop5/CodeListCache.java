@@ -0,0 +1,50 @@
+package eu.europa.ec.eurostat.los.pop5;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+
+/**
+ * The <code>CodeListCache</code> class keeps the nodes of the code items and component properties, so that they are
+ * created only once when several tables using the same code lists are converted in the same run.
+ */
+public class CodeListCache {
+
+	private final Map<Integer, Map<String, Node>> geoItems = new HashMap<Integer, Map<String, Node>>();
+	private final Map<String, Map<String, Node>> codeItems = new HashMap<String, Map<String, Node>>();
+	private final Map<String, Node> properties = new HashMap<String, Node>();
+
+	/**
+	 * Returns the node of a geographic code item (departement, commune or arrondissement municipal) in a given version of the geographic code.
+	 */
+	public Node geoItem(int geoYear, String geoCode) {
+
+		Map<String, Node> items = geoItems.computeIfAbsent(geoYear, year -> new HashMap<String, Node>());
+		return items.computeIfAbsent(geoCode, code -> NodeFactory.createURI(Configuration.cogItemURI(geoYear, code)));
+	}
+
+	/**
+	 * Returns the node of a code item.
+	 */
+	public Node codeItem(String conceptCode, String itemCode) {
+
+		Map<String, Node> items = codeItems.computeIfAbsent(conceptCode.toLowerCase(), code -> new HashMap<String, Node>());
+		return items.computeIfAbsent(itemCode, code -> NodeFactory.createURI(Configuration.codeItemURI(conceptCode, code)));
+	}
+
+	/**
+	 * Returns the node of a dimension property.
+	 */
+	public Node dimensionProperty(String conceptCode) {
+		return property(Configuration.componentURI("dimension", conceptCode));
+	}
+
+	/**
+	 * Returns the node of a property identified by its URI.
+	 */
+	public Node property(String uri) {
+		return properties.computeIfAbsent(uri, NodeFactory::createURI);
+	}
+}
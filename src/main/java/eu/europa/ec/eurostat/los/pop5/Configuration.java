@@ -1,8 +1,7 @@
 package eu.europa.ec.eurostat.los.pop5;
 
-import java.util.Arrays;
+import java.util.Comparator;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 
 import org.apache.jena.vocabulary.DC;
@@ -18,13 +17,24 @@ import eu.europa.ec.eurostat.los.utils.DataCubeOntology;
 public class Configuration {
 
 	public static final int REFERENCE_YEAR = 2015;
-	public static final int REFERENCE_YEAR_GEO = REFERENCE_YEAR + 2;
 	public static final String INSEE_SPARQL_ENDPOINT = "http://id.insee.fr/sparql";
 
-	/** Name of the Excel file containing the POP5 data
+	/** Descriptor of the POP5 table, used when no descriptor is given to the programs
 	 * The source file is at https://insee.fr/fr/statistiques/3561090?sommaire=3561107 */
-	public final static String POP5_FILE_NAME = "src/main/resources/data/BTX_TD_POP5_" + REFERENCE_YEAR + ".xls";
-	public final static int FIRST_DATA_LINE_INDEX = 11;
+	public final static String POP5_DESCRIPTOR_FILE_NAME = "src/main/resources/tables/pop5.properties";
+
+	/** Directory where the RDF files are produced */
+	public final static String DATA_DIRECTORY = "src/main/resources/data/";
+
+	/** If true, each Turtle file produced is also converted to HDT (activate with -Dpop5.hdt=true) */
+	public static final boolean EXPORT_HDT = Boolean.getBoolean("pop5.hdt");
+
+	/** If true, the data set is written in the abbreviated Data Cube form, with dimension values attached to slices (activate with -Dpop5.abbreviated=true) */
+	public static final boolean ABBREVIATED_OUTPUT = Boolean.getBoolean("pop5.abbreviated");
+
+	/** Parameters of the embedded query service */
+	public static final int QUERY_SERVICE_PORT = 3030;
+	public static final int AGGREGATE_CACHE_SIZE = 1000;
 
 	/** Prefix mappings */
 	public static Map<String, String> DSD_PREFIXES = new HashMap<String, String>();
@@ -42,40 +52,39 @@ public class Configuration {
 		CONCEPT_SCHEME_PREFIXES.put("skos", SKOS.getURI());
 	}
 
-
-	/** Location of the variable definitions */
-	public final int DEFINITIONS_SHEET_INDEX = 2;
-	public final static List<String> VARIABLE_DEFINITIONS = Arrays.asList("8-10", "12-23", "25-31");
-	public final static String HEADER_LINE_INDEXES = "5-7";
-
 	public static final String BASE_URI = "http://id.insee.fr/meta/";
-	public static final String POP5_BASE_URI = BASE_URI + "demo/pop5/";
 
-	public static final String POP_MEASURE_ID = "POP15PLUS";
-	public static final String POP_MEASURE_URI = "http://id.insee.fr/meta/mesure/pop15Plus";
-	public static final String POP_MEASURE_NAME = "Population de 15 ans ou plus";
-	public static final String POP_CONCEPT_URI = "http://purl.org/linked-data/sdmx/2009/concept#statPop"; // Using the SDMX concept for now, maybe define a more specific one
 	public static final String SDMX_OBS_VALUE_MEASURE_URI = "http://purl.org/linked-data/sdmx/2009/measure#obsValue";
+	public static final String SDMX_DIMENSION_BASE_URI = "http://purl.org/linked-data/sdmx/2009/dimension#";
+	public static final String SDMX_CONCEPT_BASE_URI = "http://purl.org/linked-data/sdmx/2009/concept#";
 
-	/** Naming constants and methods for geographic components */
-	public static String COG_BASE_CODE_URI = "http://id.insee.fr/codes/cog" + REFERENCE_YEAR_GEO + "/";
-	public static String GEO_CONCEPT_SCHEME_URI = COG_BASE_CODE_URI + "departementsOuCommunesOuArrondissementsMunicipaux";
-	public static String GEO_CODE_CONCEPT_URI = COG_BASE_CODE_URI + "DepartementOuCommuneOuArrondissementMunicipal";
-	public static String departementURI(String code) {
-		return COG_BASE_CODE_URI + "departement/" + code;	
+	/** Naming methods for geographic components, the year is the one of the geographic code (COG) */
+	public static String cogBaseCodeURI(int geoYear) {
+		return "http://id.insee.fr/codes/cog" + geoYear + "/";
+	}
+	public static String geoConceptSchemeURI(int geoYear) {
+		return cogBaseCodeURI(geoYear) + "departementsOuCommunesOuArrondissementsMunicipaux";
+	}
+	public static String geoCodeConceptURI(int geoYear) {
+		return cogBaseCodeURI(geoYear) + "DepartementOuCommuneOuArrondissementMunicipal";
+	}
+	public static String departementURI(int geoYear, String code) {
+		return cogBaseCodeURI(geoYear) + "departement/" + code;	
 	}
-	public static String communeURI(String code) {
-		return COG_BASE_CODE_URI + "commune/" + code;	
+	public static String communeURI(int geoYear, String code) {
+		return cogBaseCodeURI(geoYear) + "commune/" + code;	
 	}
-	public static String arrondissementMunicipalURI(String code) {
-		return COG_BASE_CODE_URI + "arrondissementMunicipal/" + code;	
+	public static String arrondissementMunicipalURI(int geoYear, String code) {
+		return cogBaseCodeURI(geoYear) + "arrondissementMunicipal/" + code;	
 	}
-	public static String cogItemURI(String code) {
-		if (code.length() < 5) return departementURI(code);
-		else if (getParentGeoCode(code) == null) return communeURI(code);
-		return arrondissementMunicipalURI(code);
+	public static String cogItemURI(int geoYear, String code) {
+		if (code.length() < 5) return departementURI(geoYear, code);
+		else if (getParentGeoCode(code) == null) return communeURI(geoYear, code);
+		return arrondissementMunicipalURI(geoYear, code);
+	}
+	public static String geoDimensionURI(int geoYear) {
+		return "http://id.insee.fr/meta/cog" + geoYear + "/dimension/DepartementOuCommuneOuArrondissementMunicipal";
 	}
-	public static String geoDimensionURI = "http://id.insee.fr/meta/cog" + REFERENCE_YEAR_GEO + "/dimension/DepartementOuCommuneOuArrondissementMunicipal";
 	public static String getParentGeoCode(String code) {
 
 		if (code == null) return null;
@@ -85,87 +94,37 @@ public class Configuration {
 		return null;
 	}
 	
+	/** Order of the geographic codes in the INSEE files: Corsican codes (2A and 2B) come between 19 and 21 */
+	public static final Comparator<String> GEO_CODE_ORDER = Comparator.comparing(code -> (code.startsWith("2A") || code.startsWith("2B")) ? "20" + code.substring(1) : code);
+
 	public static String getDepFromCommune(String code) {
 		if(code.startsWith("2A") || code.startsWith("2B")) return "20";
 		else if (code.startsWith("97")) return code.substring(0, 3);
 		else return code.substring(0, 2); 
 	}
 
-	/** Naming constants and methods for other components */
+	/** Naming methods for other components */
 	public static String codeItemURI(String conceptCode, String itemCode) {
 		return "http://id.insee.fr/codes/" + conceptCode.toLowerCase() + "/" + itemCode;
 	}
 
-	public static String conceptSchemeURI(String conceptCode, String conceptName) {
-		return "http://id.insee.fr/codes/" + conceptCode + "/" + getConceptSchemePathName(conceptCode, conceptName);
+	public static String conceptSchemeURI(String conceptCode, String schemePathName) {
+		return "http://id.insee.fr/codes/" + conceptCode.toLowerCase() + "/" + schemePathName;
 	}
 
-	public static String codeConceptURI(String conceptCode, String conceptName) {
-		return "http://id.insee.fr/codes/" + conceptCode + "/" + getConceptPathName(conceptCode, conceptName);
+	public static String codeConceptURI(String conceptCode, String conceptPathName) {
+		return "http://id.insee.fr/codes/" + conceptCode.toLowerCase() + "/" + conceptPathName;
 	}
 
 	// A very basic implementation for now
-	public static String conceptURI(String conceptCode, String conceptName) {
-		return "http://id.insee.fr/concepts/" + getConceptPathName(conceptCode, conceptName);
+	public static String conceptURI(String conceptPathName) {
+		return "http://id.insee.fr/concepts/" + conceptPathName;
 	}
 
 	public static String componentURI(String componentType, String conceptCode) { // Type should be 'attribute', 'dimension' or 'measure' but no control is made
 		return "http://id.insee.fr/meta/" + componentType + "/" + conceptCode.toLowerCase();
 	}
 
-	public static String getSDMXBroaderConcept(String conceptCode) {
-
-		if ("GEO".equalsIgnoreCase(conceptCode)) return "refArea";
-		if ("SEXE".equalsIgnoreCase(conceptCode)) return "sex";
-		if ("AGEQ65".equalsIgnoreCase(conceptCode)) return "age";
-		// No SDMX concept for TACTR
-
-		return null;
-	}
-
-	public static String getConceptSchemeName(String conceptCode, String conceptName) {
-
-		if ("SEXE".equalsIgnoreCase(conceptCode)) return "Sexes";
-		if ("AGEQ65".equalsIgnoreCase(conceptCode)) return "Âges quinquennaux";
-		if ("TACTR".equalsIgnoreCase(conceptCode)) return "Types d'activité";
-
-		return "Scheme";
-	}
-
-	public static String getConceptSchemePathName(String conceptCode, String conceptName) {
-
-		if ("SEXE".equalsIgnoreCase(conceptCode)) return "sexes";
-		if ("AGEQ65".equalsIgnoreCase(conceptCode)) return "agesQuinquennaux";
-		if ("TACTR".equalsIgnoreCase(conceptCode)) return "typesDActivite";
-
-		return "scheme";
-	}
-
-	public static String getConceptPathName(String conceptCode, String conceptName) {
-
-		if ("SEXE".equalsIgnoreCase(conceptCode)) return "Sexe";
-		if ("AGEQ65".equalsIgnoreCase(conceptCode)) return "AgeQuinquennal";
-		if ("TACTR".equalsIgnoreCase(conceptCode)) return "TypeDActivite";
-
-		return "Concept";
-	}
-
-	public static String dsdURI(String dsdId) {
-		return POP5_BASE_URI + "dsd/" + dsdId;	
-	}
-
-	public static String dataSetURI(String dataSetId) {
-		return POP5_BASE_URI + "dataSet/" + dataSetId;	
-	}
-
-	public static String observationURI(String geoCode, String[] dimensionValues) {
-		return POP5_BASE_URI + "observation/" + REFERENCE_YEAR + "-" + geoCode + "-" + String.join("-", dimensionValues);	
-	}
-	
-	public static String observationURI(String params) {
-		return POP5_BASE_URI + "observation/" + REFERENCE_YEAR + "-" + params;	
-	}
-	
 	/** Insee geo object base URIs */
 	
 	public static String DEPARTEMENT_BASE_URI = "http://id.insee.fr/geo/departement/";
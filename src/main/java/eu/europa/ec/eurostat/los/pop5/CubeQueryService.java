@@ -0,0 +1,269 @@
+package eu.europa.ec.eurostat.los.pop5;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+
+import org.apache.jena.query.Query;
+import org.apache.jena.query.QueryExecution;
+import org.apache.jena.query.QueryExecutionFactory;
+import org.apache.jena.query.QueryFactory;
+import org.apache.jena.query.QueryParseException;
+import org.apache.jena.query.ResultSetFormatter;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFDataMgr;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * The <code>CubeQueryService</code> class is an embedded read-only HTTP service over the data generated for a table (by default POP5).
+ *
+ * The observations produced by <code>DataSetModelMaker</code> are loaded in an {@link ObservationCube}, which answers
+ * aggregate and slice requests without SPARQL; aggregate results are kept in a LRU cache. The data sets must be in the normalized
+ * form: files written in the abbreviated form are rejected and must first be expanded with <code>DataCubeNormalizer</code>. The DSD and code lists
+ * produced by <code>DSDModelMaker</code> are loaded in a Jena model and can be queried with SPARQL.
+ *
+ * Endpoints:
+ * <ul>
+ * <li><code>/cube/aggregate?groupBy=tactr&amp;geo=75056</code>: sums of the measure grouped by a dimension (total if <code>groupBy</code> is absent)</li>
+ * <li><code>/cube/slice?geo=75056&amp;sexe=1&amp;limit=100</code>: observations matching the dimension values</li>
+ * <li><code>/sparql?query=...</code>: SPARQL SELECT or ASK queries on the DSD and code lists</li>
+ * </ul>
+ * Dimension names are <code>geo</code>, <code>geoLevel</code> and the lower-case codes of the other dimensions of the table (<code>sexe</code>,
+ * <code>ageq65</code>, <code>tactr</code> for POP5). The values of <code>geoLevel</code> are <code>departement</code>, <code>commune</code> and
+ * <code>arrondissementMunicipal</code>: since departements are aggregated from the municipalities and Paris, Lyon and Marseille are divided in
+ * arrondissements, the levels overlap. Aggregates which constrain neither <code>geo</code> nor <code>geoLevel</code> are therefore computed on
+ * the municipalities only, and the applied level is returned in the filters of the response.
+ */
+public class CubeQueryService {
+
+	private static Logger logger = LogManager.getLogger(CubeQueryService.class);
+
+	private static final int DEFAULT_SLICE_LIMIT = 10000;
+	/** The municipalities cover the whole territory exactly once */
+	private static final String DEFAULT_GEO_LEVEL = "commune";
+
+	private TableDescriptor descriptor = null;
+	private ObservationCube cube = null;
+	private Model metadataModel = null;
+	private Map<String, String> aggregateCache = null;
+
+	public static void main(String[] args) throws Exception {
+
+		String descriptorFileName = (args.length > 0) ? args[0] : Configuration.POP5_DESCRIPTOR_FILE_NAME;
+		int port = (args.length > 1) ? Integer.parseInt(args[1]) : Configuration.QUERY_SERVICE_PORT;
+
+		CubeQueryService service = new CubeQueryService(TableDescriptor.load(descriptorFileName));
+		service.start(port);
+	}
+
+	/**
+	 * Loads the data set, DSD and code list files of a table.
+	 *
+	 * @param descriptor The descriptor of the table, which gives the names of the files produced by <code>DataSetModelMaker</code> and <code>DSDModelMaker</code>.
+	 */
+	public CubeQueryService(TableDescriptor descriptor) {
+
+		this.descriptor = descriptor;
+		LinkedHashMap<String, String> dimensions = new LinkedHashMap<String, String>();
+		dimensions.put("geo", descriptor.geoDimensionURI());
+		for (TableDescriptor.Dimension dimension : descriptor.getDimensions()) dimensions.put(dimension.getCode().toLowerCase(), dimension.propertyURI());
+		LinkedHashMap<String, String> levelDimensions = new LinkedHashMap<String, String>();
+		levelDimensions.put("geoLevel", "geo");
+		cube = new ObservationCube(dimensions, levelDimensions, descriptor.getMeasureURI());
+		metadataModel = ModelFactory.createDefaultModel();
+
+		cube.load(descriptor.getDataSetFileName());
+		if (descriptor.getCommuneSheetIndex() != null) cube.load(descriptor.getDepartementalDataSetFileName());
+		List<String> metadataFileNames = new ArrayList<String>();
+		metadataFileNames.add(descriptor.getDSDFileName());
+		metadataFileNames.add(descriptor.getGeoCodeListFileName());
+		for (TableDescriptor.Dimension dimension : descriptor.getDimensions()) metadataFileNames.add(descriptor.getCodeListFileName(dimension));
+		for (String fileName : metadataFileNames) {
+			if (new File(fileName).exists()) RDFDataMgr.read(metadataModel, fileName, Lang.TURTLE);
+			else logger.warn("Metadata file " + fileName + " not found, it will not be available for SPARQL queries");
+		}
+		cube.index();
+		logger.info("Metadata model loaded, number of statements: " + metadataModel.size());
+
+		aggregateCache = Collections.synchronizedMap(new LinkedHashMap<String, String>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+				return size() > Configuration.AGGREGATE_CACHE_SIZE;
+			}
+		});
+	}
+
+	/**
+	 * Starts the HTTP server.
+	 *
+	 * @param port The port on which the service listens.
+	 * @return The running server.
+	 */
+	public HttpServer start(int port) throws IOException {
+
+		HttpServer server = HttpServer.create(new InetSocketAddress(port), 0);
+		server.createContext("/cube/aggregate", exchange -> handle(exchange, "application/json", parameters -> aggregate(parameters)));
+		server.createContext("/cube/slice", exchange -> handle(exchange, "application/json", parameters -> slice(parameters)));
+		server.createContext("/sparql", exchange -> handle(exchange, "application/sparql-results+json", parameters -> sparql(parameters)));
+		server.setExecutor(Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors()));
+		server.start();
+		logger.info("Query service listening on port " + port);
+
+		return server;
+	}
+
+	/**
+	 * Returns the sums of the measure grouped by a dimension, as a JSON object.
+	 *
+	 * @param parameters The request parameters: <code>groupBy</code> and dimension values.
+	 * @return The JSON representation of the aggregate.
+	 */
+	public String aggregate(Map<String, String> parameters) {
+
+		// Parameters are sorted, so the request string is a canonical cache key whatever the type of the map
+		Map<String, String> filters = new TreeMap<String, String>(parameters);
+		String key = filters.toString();
+		String cached = aggregateCache.get(key);
+		if (cached != null) return cached;
+
+		String groupBy = filters.remove("groupBy");
+		// Grouping by territory or by level does not mix the levels
+		if (!filters.containsKey("geo") && !filters.containsKey("geoLevel") && !"geo".equals(groupBy) && !"geoLevel".equals(groupBy)) filters.put("geoLevel", DEFAULT_GEO_LEVEL);
+		StringBuilder json = new StringBuilder("{\"filters\":").append(toJSON(filters));
+		if (groupBy == null) json.append(",\"total\":").append(cube.total(filters));
+		else {
+			SortedMap<String, Double> groups = cube.groupBy(groupBy, filters);
+			json.append(",\"groupBy\":").append(quote(groupBy)).append(",\"groups\":{");
+			String separator = "";
+			for (Map.Entry<String, Double> group : groups.entrySet()) {
+				json.append(separator).append(quote(group.getKey())).append(":").append(group.getValue());
+				separator = ",";
+			}
+			json.append("}");
+		}
+		String result = json.append("}").toString();
+		aggregateCache.put(key, result);
+
+		return result;
+	}
+
+	/**
+	 * Returns the observations matching dimension values, as a JSON object.
+	 *
+	 * @param parameters The request parameters: dimension values and optional <code>limit</code>.
+	 * @return The JSON representation of the observations.
+	 */
+	public String slice(Map<String, String> parameters) {
+
+		Map<String, String> filters = new TreeMap<String, String>(parameters);
+		String limit = filters.remove("limit");
+		List<String[]> observations = cube.slice(filters, (limit == null) ? DEFAULT_SLICE_LIMIT : Integer.parseInt(limit));
+		String[] dimensionNames = cube.getDimensionNames();
+
+		StringBuilder json = new StringBuilder("{\"filters\":").append(toJSON(filters)).append(",\"observations\":[");
+		String separator = "";
+		for (String[] observation : observations) {
+			json.append(separator).append("{");
+			for (int index = 0; index < dimensionNames.length; index++) json.append(quote(dimensionNames[index])).append(":").append(quote(observation[index])).append(",");
+			json.append(quote(descriptor.getMeasureId())).append(":").append(observation[dimensionNames.length]).append("}");
+			separator = ",";
+		}
+		return json.append("]}").toString();
+	}
+
+	/**
+	 * Executes a SPARQL query on the DSD and code lists.
+	 *
+	 * @param parameters The request parameters: <code>query</code>.
+	 * @return The query results in SPARQL JSON format.
+	 */
+	public String sparql(Map<String, String> parameters) {
+
+		if (!parameters.containsKey("query")) throw new IllegalArgumentException("Missing query parameter");
+		Query query = QueryFactory.create(parameters.get("query"));
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		try (QueryExecution execution = QueryExecutionFactory.create(query, metadataModel)) {
+			if (query.isSelectType()) ResultSetFormatter.outputAsJSON(output, execution.execSelect());
+			else if (query.isAskType()) ResultSetFormatter.outputAsJSON(output, execution.execAsk());
+			else throw new IllegalArgumentException("Only SELECT and ASK queries are supported");
+		}
+		return new String(output.toByteArray(), StandardCharsets.UTF_8);
+	}
+
+	private interface RequestHandler {
+		String process(Map<String, String> parameters);
+	}
+
+	private static void handle(HttpExchange exchange, String contentType, RequestHandler handler) throws IOException {
+
+		int status = 200;
+		String response = null;
+		try {
+			if (!"GET".equalsIgnoreCase(exchange.getRequestMethod())) {
+				status = 405;
+				response = "Only GET requests are supported";
+			}
+			else response = handler.process(getParameters(exchange.getRequestURI().getRawQuery()));
+		} catch (IllegalArgumentException | QueryParseException e) { // NumberFormatException is an IllegalArgumentException
+			status = 400;
+			response = e.getMessage();
+		} catch (Exception e) {
+			logger.error("Error processing request " + exchange.getRequestURI(), e);
+			status = 500;
+			response = "Internal error";
+		}
+		byte[] bytes = response.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", ((status == 200) ? contentType : "text/plain") + "; charset=utf-8");
+		exchange.sendResponseHeaders(status, bytes.length);
+		try (OutputStream output = exchange.getResponseBody()) {
+			output.write(bytes);
+		}
+	}
+
+	private static SortedMap<String, String> getParameters(String rawQuery) throws UnsupportedEncodingException {
+
+		SortedMap<String, String> parameters = new TreeMap<String, String>();
+		if ((rawQuery == null) || rawQuery.isEmpty()) return parameters;
+		for (String parameter : rawQuery.split("&")) {
+			int equalsIndex = parameter.indexOf('=');
+			if (equalsIndex <= 0) continue;
+			parameters.put(URLDecoder.decode(parameter.substring(0, equalsIndex), "UTF-8"), URLDecoder.decode(parameter.substring(equalsIndex + 1), "UTF-8"));
+		}
+		return parameters;
+	}
+
+	private static String toJSON(Map<String, String> map) {
+
+		StringBuilder json = new StringBuilder("{");
+		String separator = "";
+		for (Map.Entry<String, String> entry : map.entrySet()) {
+			json.append(separator).append(quote(entry.getKey())).append(":").append(quote(entry.getValue()));
+			separator = ",";
+		}
+		return json.append("}").toString();
+	}
+
+	private static String quote(String value) {
+		return "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+	}
+}
@@ -1,9 +1,12 @@
 package eu.europa.ec.eurostat.los.pop5;
 
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
 
@@ -13,8 +16,6 @@ import org.apache.jena.query.ResultSet;
 import org.apache.jena.rdf.model.Model;
 import org.apache.jena.rdf.model.ModelFactory;
 import org.apache.jena.rdf.model.Resource;
-import org.apache.jena.riot.Lang;
-import org.apache.jena.riot.RDFDataMgr;
 import org.apache.jena.sparql.vocabulary.FOAF;
 import org.apache.jena.vocabulary.DC;
 import org.apache.jena.vocabulary.DCTerms;
@@ -26,15 +27,21 @@ import org.apache.jena.vocabulary.XSD;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.usermodel.CellType;
 import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.usermodel.Row.MissingCellPolicy;
 import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.Workbook;
 
 import eu.europa.ec.eurostat.los.utils.DataCubeOntology;
+import eu.europa.ec.eurostat.los.utils.HDTExport;
 
 /**
- * The <code>DSDModelMaker</code> class creates the Data Cube Data Structure Definition for the POP5 data set.
+ * The <code>DSDModelMaker</code> class creates the Data Cube Data Structure Definitions and the code lists for census tables,
+ * using a {@link TableDescriptor} for each table.
+ *
+ * When several tables are processed in the same run, the code lists shared by the tables are written only once, and the
+ * geographic code lists contain the territories of all the tables using the same version of the geographic code.
  * 
  * @author Franck
  */
@@ -42,55 +49,70 @@ public class DSDModelMaker {
 
 	private static Logger logger = LogManager.getLogger(DSDModelMaker.class);
 
-	private static Workbook wb = null;
+	private TableDescriptor descriptor;
+	private Workbook wb;
 
+	/**
+	 * Processes the tables described by the descriptor files given as arguments (by default the POP5 table).
+	 */
 	public static void main(String[] args) throws Exception {
 
-		wb = new HSSFWorkbook(new FileInputStream(Configuration.POP5_FILE_NAME));
-
-		Model pop5Model = getGeoConceptScheme();
-		RDFDataMgr.write(new FileOutputStream("src/main/resources/data/cs-cog2017.ttl"), pop5Model, Lang.TURTLE);
-		for (String variable : Configuration.VARIABLE_DEFINITIONS) {
-			Model csModel = getConceptScheme(variable);
-			String fileName = "src/main/resources/data/cs-"  + getConceptCode(variable) + ".ttl";
-			RDFDataMgr.write(new FileOutputStream(fileName), csModel, Lang.TURTLE);
+		String[] descriptorFileNames = (args.length > 0) ? args : new String[] {Configuration.POP5_DESCRIPTOR_FILE_NAME};
+		Map<String, Model> geoModels = new LinkedHashMap<String, Model>(); // Indexed by file name
+		Set<String> codeListFileNames = new HashSet<String>();
+		for (String descriptorFileName : descriptorFileNames) {
+			TableDescriptor descriptor = TableDescriptor.load(descriptorFileName);
+			try (InputStream input = new FileInputStream(descriptor.getFileName()); Workbook workbook = new HSSFWorkbook(input)) {
+				DSDModelMaker maker = new DSDModelMaker(descriptor, workbook);
+				maker.addGeoEntries(geoModels.computeIfAbsent(descriptor.getGeoCodeListFileName(), fileName -> getGeoConceptScheme(descriptor.getGeoYear())));
+				for (TableDescriptor.Dimension dimension : descriptor.getDimensions()) {
+					String fileName = descriptor.getCodeListFileName(dimension);
+					if (codeListFileNames.add(fileName)) HDTExport.write(maker.getConceptScheme(dimension), fileName, Configuration.EXPORT_HDT, Configuration.BASE_URI);
+				}
+				HDTExport.write(maker.getDSDModel(), descriptor.getDSDFileName(), Configuration.EXPORT_HDT, Configuration.BASE_URI);
+			}
 		}
-		Model pop5DSDModel = getPOP5DSDModel();
-		RDFDataMgr.write(new FileOutputStream("src/main/resources/data/dsd-pop5.ttl"), pop5DSDModel, Lang.TURTLE);
+		for (Map.Entry<String, Model> geoModel : geoModels.entrySet()) HDTExport.write(geoModel.getValue(), geoModel.getKey(), Configuration.EXPORT_HDT, Configuration.BASE_URI);
+	}
+
+	public DSDModelMaker(TableDescriptor descriptor, Workbook wb) {
+		this.descriptor = descriptor;
+		this.wb = wb;
 	}
 
 	/**
-	 * Reads the spreadsheet and extracts the concept scheme of geographic territories.
+	 * Creates the concept scheme of geographic territories for a version of the geographic code, containing the departements.
 	 * 
-	 * @return A Jena model containing the code list of geographic territories as a SKOS concept scheme.
+	 * @param geoYear The year of the geographic code.
+	 * @return A Jena model containing the code list of departements as a SKOS concept scheme.
 	 */
-	public static Model getGeoConceptScheme() {
+	public static Model getGeoConceptScheme(int geoYear) {
 
 		Model geoModel = ModelFactory.createDefaultModel();
 		geoModel.setNsPrefix("rdfs", RDFS.getURI());
 		geoModel.setNsPrefix("owl", OWL.getURI());
 		geoModel.setNsPrefix("skos", SKOS.getURI());
 		geoModel.setNsPrefix("foaf", FOAF.getURI());
-		String basePrefix = "cog" + Configuration.REFERENCE_YEAR_GEO;
-		geoModel.setNsPrefix(basePrefix, Configuration.COG_BASE_CODE_URI);
-		geoModel.setNsPrefix(basePrefix + "-dep", Configuration.departementURI(""));
-		geoModel.setNsPrefix(basePrefix + "-com", Configuration.communeURI(""));
-		geoModel.setNsPrefix(basePrefix + "-arm", Configuration.arrondissementMunicipalURI(""));
+		String basePrefix = "cog" + geoYear;
+		geoModel.setNsPrefix(basePrefix, Configuration.cogBaseCodeURI(geoYear));
+		geoModel.setNsPrefix(basePrefix + "-dep", Configuration.departementURI(geoYear, ""));
+		geoModel.setNsPrefix(basePrefix + "-com", Configuration.communeURI(geoYear, ""));
+		geoModel.setNsPrefix(basePrefix + "-arm", Configuration.arrondissementMunicipalURI(geoYear, ""));
 
 		// Create the concept scheme and the associated concept
-		Resource geoCS = geoModel.createResource(Configuration.GEO_CONCEPT_SCHEME_URI, SKOS.ConceptScheme);
-		geoCS.addProperty(SKOS.prefLabel, geoModel.createLiteral("Liste des départements, communes et arrondissements municipaux au 1er janvier " + Configuration.REFERENCE_YEAR_GEO, "fr"));
-		geoCS.addProperty(SKOS.prefLabel, geoModel.createLiteral("List of departements, municipalities and municipal arrondissements on 1 January " + Configuration.REFERENCE_YEAR_GEO, "en"));
-		Resource geoConcept = geoModel.createResource(Configuration.GEO_CODE_CONCEPT_URI, OWL.Class);
+		Resource geoCS = geoModel.createResource(Configuration.geoConceptSchemeURI(geoYear), SKOS.ConceptScheme);
+		geoCS.addProperty(SKOS.prefLabel, geoModel.createLiteral("Liste des départements, communes et arrondissements municipaux au 1er janvier " + geoYear, "fr"));
+		geoCS.addProperty(SKOS.prefLabel, geoModel.createLiteral("List of departements, municipalities and municipal arrondissements on 1 January " + geoYear, "en"));
+		Resource geoConcept = geoModel.createResource(Configuration.geoCodeConceptURI(geoYear), OWL.Class);
 		geoConcept.addProperty(RDF.type, RDFS.Class);
 		geoConcept.addProperty(RDFS.subClassOf, SKOS.Concept);
-		geoConcept.addProperty(SKOS.prefLabel, geoModel.createLiteral("Département, commune ou arrondissement municipal au 1er janvier " + Configuration.REFERENCE_YEAR_GEO, "fr"));
-		geoConcept.addProperty(SKOS.prefLabel, geoModel.createLiteral("Departement, municipality or municipal arrondissement on 1 January " + Configuration.REFERENCE_YEAR_GEO, "en"));
-		geoConcept.addProperty(SKOS.notation, geoModel.createLiteral("COG " + Configuration.REFERENCE_YEAR_GEO, "fr"));
+		geoConcept.addProperty(SKOS.prefLabel, geoModel.createLiteral("Département, commune ou arrondissement municipal au 1er janvier " + geoYear, "fr"));
+		geoConcept.addProperty(SKOS.prefLabel, geoModel.createLiteral("Departement, municipality or municipal arrondissement on 1 January " + geoYear, "en"));
+		geoConcept.addProperty(SKOS.notation, geoModel.createLiteral("COG " + geoYear, "fr"));
 		geoCS.addProperty(RDFS.seeAlso, geoConcept);
 		geoConcept.addProperty(RDFS.seeAlso, geoCS);
 		
-		// First retrieve departements from id.insee.fr/sparql
+		// Retrieve departements from id.insee.fr/sparql
 		SortedMap<String, String> departements = new TreeMap<String, String>();
 		
 	    String depQuery = "PREFIX igeo:<http://rdf.insee.fr/def/geo#> \n"
@@ -111,7 +133,7 @@ public class DSDModelMaker {
 		execution.close();
 		logger.debug("Departements map size: " + departements.size());
 		for (Map.Entry<String, String> entry : departements.entrySet()) {
-			Resource geoEntry = geoModel.createResource(Configuration.cogItemURI(entry.getKey()), geoConcept);
+			Resource geoEntry = geoModel.createResource(Configuration.cogItemURI(geoYear, entry.getKey()), geoConcept);
 			geoEntry.addProperty(RDF.type, SKOS.Concept); // For stupid clients
 			geoEntry.addProperty(SKOS.notation, entry.getKey());
 			geoEntry.addProperty(SKOS.prefLabel, geoModel.createLiteral(entry.getValue(), "fr"));
@@ -119,88 +141,101 @@ public class DSDModelMaker {
 			geoEntry.addProperty(FOAF.focus, geoModel.createResource(Configuration.DEPARTEMENT_BASE_URI + entry.getKey()));
 		}	
 
-		// Then process municipalities sheet
-		Iterator<Row> rows = wb.getSheetAt(0).rowIterator();
-		while (rows.hasNext()) {
-			Row currentRow = rows.next();
-			if (currentRow.getRowNum() < Configuration.FIRST_DATA_LINE_INDEX) continue; // TODO Define constant
-			String code = currentRow.getCell(0, MissingCellPolicy.CREATE_NULL_AS_BLANK).toString();
-			String name = currentRow.getCell(1, MissingCellPolicy.CREATE_NULL_AS_BLANK).toString();
-			Resource geoEntry = geoModel.createResource(Configuration.cogItemURI(code), geoConcept);
-			geoEntry.addProperty(RDF.type, SKOS.Concept); // For stupid clients
-			geoEntry.addProperty(SKOS.notation, code);
-			geoEntry.addProperty(SKOS.prefLabel, geoModel.createLiteral(name, "fr"));
-			// Create departement links
-			Resource dep = geoModel.createResource(Configuration.cogItemURI(Configuration.getDepFromCommune(code)), geoConcept); // Normally already in the model
-			dep.addProperty(SKOS.narrower, geoEntry);
-			geoEntry.addProperty(SKOS.broader, dep);
-			geoEntry.addProperty(FOAF.focus, geoModel.createResource(Configuration.COMMUNE_BASE_URI + code));
-			
-		}
-		// Then the arrondissements
-		rows = wb.getSheetAt(1).rowIterator();
-		while (rows.hasNext()) {
-			Row currentRow = rows.next();
-			if (currentRow.getRowNum() < Configuration.FIRST_DATA_LINE_INDEX) continue; // TODO Define constant
-			String code = currentRow.getCell(0, MissingCellPolicy.CREATE_NULL_AS_BLANK).toString();
-			String name = currentRow.getCell(1, MissingCellPolicy.CREATE_NULL_AS_BLANK).toString();
-			Resource geoEntry = geoModel.createResource(Configuration.cogItemURI(code), geoConcept);
-			geoEntry.addProperty(RDF.type, SKOS.Concept); // For stupid clients
-			geoEntry.addProperty(SKOS.notation, code);
-			geoEntry.addProperty(SKOS.prefLabel, geoModel.createLiteral(name, "fr"));
-			geoEntry.addProperty(SKOS.inScheme, geoCS);
-			String parentCode = Configuration.getParentGeoCode(code);
-			if (parentCode != null) {
-				Resource parent = geoModel.createResource(Configuration.cogItemURI(parentCode), geoConcept); // Normally already in the model
-				parent.addProperty(SKOS.narrower, geoEntry);
-				geoEntry.addProperty(SKOS.broader, parent);
-			}
-			geoEntry.addProperty(FOAF.focus, geoModel.createResource(Configuration.ARRONDISSEMENT_BASE_URI + code));
-		}
-
 		return geoModel;
 	}
 
-	private static String getConceptCode(String variable) {
+	/**
+	 * Reads the data sheets of the workbook and adds the municipalities and municipal arrondissements to the geographic concept scheme.
+	 * Municipalities are linked to their departement, arrondissements to their municipality.
+	 * 
+	 * @param geoModel The model containing the geographic concept scheme, as created by <code>getGeoConceptScheme</code>.
+	 */
+	public void addGeoEntries(Model geoModel) {
+
+		int geoYear = descriptor.getGeoYear();
+		Resource geoCS = geoModel.createResource(Configuration.geoConceptSchemeURI(geoYear));
+		Resource geoConcept = geoModel.createResource(Configuration.geoCodeConceptURI(geoYear));
+
+		for (int sheetIndex : descriptor.getSheetIndexes()) {
+			boolean municipalities = (descriptor.getCommuneSheetIndex() != null) && (descriptor.getCommuneSheetIndex() == sheetIndex);
+			Iterator<Row> rows = wb.getSheetAt(sheetIndex).rowIterator();
+			while (rows.hasNext()) {
+				Row currentRow = rows.next();
+				if (currentRow.getRowNum() < descriptor.getFirstDataLineIndex()) continue;
+				String code = currentRow.getCell(0, MissingCellPolicy.CREATE_NULL_AS_BLANK).toString().trim();
+				if (code.isEmpty() || !hasValues(currentRow)) continue; // Blank lines and footnotes, as in TableReader
+				String name = currentRow.getCell(1, MissingCellPolicy.CREATE_NULL_AS_BLANK).toString();
+				Resource geoEntry = geoModel.createResource(Configuration.cogItemURI(geoYear, code), geoConcept);
+				geoEntry.addProperty(RDF.type, SKOS.Concept); // For stupid clients
+				geoEntry.addProperty(SKOS.notation, code);
+				geoEntry.addProperty(SKOS.prefLabel, geoModel.createLiteral(name, "fr"));
+				if (municipalities) {
+					// Create departement links
+					Resource dep = geoModel.createResource(Configuration.cogItemURI(geoYear, Configuration.getDepFromCommune(code)), geoConcept); // Normally already in the model
+					dep.addProperty(SKOS.narrower, geoEntry);
+					geoEntry.addProperty(SKOS.broader, dep);
+					geoEntry.addProperty(FOAF.focus, geoModel.createResource(Configuration.COMMUNE_BASE_URI + code));
+				} else {
+					geoEntry.addProperty(SKOS.inScheme, geoCS);
+					String parentCode = Configuration.getParentGeoCode(code);
+					if (parentCode != null) {
+						Resource parent = geoModel.createResource(Configuration.cogItemURI(geoYear, parentCode), geoConcept); // Normally already in the model
+						parent.addProperty(SKOS.narrower, geoEntry);
+						geoEntry.addProperty(SKOS.broader, parent);
+					}
+					geoEntry.addProperty(FOAF.focus, geoModel.createResource(Configuration.ARRONDISSEMENT_BASE_URI + code));
+				}
+			}
+		}
+	}
 
-		int firstLineIndex = Integer.parseInt(variable.split("-")[0]) - 1;
-		String listTitle = wb.getSheetAt(2).getRow(firstLineIndex).getCell(0).toString();
+	/**
+	 * Checks that a row contains at least one numeric value in the data columns.
+	 */
+	private boolean hasValues(Row row) {
 
-		return listTitle.split(":")[0].trim().toLowerCase();
+		for (int columnIndex = descriptor.getFirstDataColumnIndex(); columnIndex < row.getLastCellNum(); columnIndex++) {
+			if (row.getCell(columnIndex, MissingCellPolicy.CREATE_NULL_AS_BLANK).getCellTypeEnum() == CellType.NUMERIC) return true;
+		}
+		return false;
 	}
 
-	private static String getConceptName(String variable) {
-
-		int firstLineIndex = Integer.parseInt(variable.split("-")[0]) - 1;
-		String listTitle = wb.getSheetAt(2).getRow(firstLineIndex).getCell(0).toString();
+	/**
+	 * Returns the title of the code list of a dimension in the definitions sheet, checking that it corresponds to the dimension.
+	 * 
+	 * @return The concept code and the concept name.
+	 */
+	private String[] getConceptTitle(TableDescriptor.Dimension dimension) {
 
-		return listTitle.split(":")[1].trim();
+		String listTitle = wb.getSheetAt(descriptor.getDefinitionsSheetIndex()).getRow(dimension.getFirstDefinitionLineIndex()).getCell(0).toString();
+		// Format is CODE : Concept
+		String[] title = listTitle.split(":", 2);
+		if ((title.length < 2) || !title[0].trim().equalsIgnoreCase(dimension.getCode())) {
+			throw new IllegalStateException("Table " + descriptor.getId() + ": the code list of " + dimension.getCode() + " is not at the line given in the descriptor (found " + listTitle + ")");
+		}
+		return new String[] {title[0].trim().toLowerCase(), title[1].trim()};
 	}
 
 	/**
-	 * Returns a model containing the code list corresponding to a variable definition.
+	 * Returns a model containing the code list of a dimension.
 	 * 
-	 * @param variable The location of the variable definitions (lines in the input spreadsheet).
-	 * @return A Jena model containing the code list associated to the variable.
+	 * @param dimension The dimension, which gives the location of its code list in the definitions sheet.
+	 * @return A Jena model containing the code list associated to the dimension.
 	 */
-	public static Model getConceptScheme(String variable) {
-
-		int firstLineIndex = Integer.parseInt(variable.split("-")[0]) - 1;
-		int lastLineIndex = Integer.parseInt(variable.split("-")[1]) - 1;
+	public Model getConceptScheme(TableDescriptor.Dimension dimension) {
 
-		Sheet variableListSheet = wb.getSheetAt(2);
-		String listTitle = variableListSheet.getRow(firstLineIndex).getCell(0).toString();
-		// Format is CODE : Concept
-		String conceptCode = listTitle.split(":")[0].trim().toLowerCase();
-		String conceptName = listTitle.split(":")[1].trim();
+		Sheet variableListSheet = wb.getSheetAt(descriptor.getDefinitionsSheetIndex());
+		String[] conceptTitle = getConceptTitle(dimension);
+		String conceptCode = conceptTitle[0];
+		String conceptName = conceptTitle[1];
 
 		Model conceptModel = ModelFactory.createDefaultModel();
 		conceptModel.setNsPrefixes(Configuration.CONCEPT_SCHEME_PREFIXES);
 		// Create the concept scheme and the associated concept
-		Resource scheme = conceptModel.createResource(Configuration.conceptSchemeURI(conceptCode, conceptName), SKOS.ConceptScheme);
-		scheme.addProperty(SKOS.prefLabel, conceptModel.createLiteral(Configuration.getConceptSchemeName(conceptCode, conceptName), "fr"));
+		Resource scheme = conceptModel.createResource(dimension.conceptSchemeURI(), SKOS.ConceptScheme);
+		scheme.addProperty(SKOS.prefLabel, conceptModel.createLiteral(dimension.getSchemeName(), "fr"));
 		scheme.addProperty(SKOS.notation, conceptModel.createLiteral(conceptCode.toUpperCase(), "fr"));
-		Resource concept = conceptModel.createResource(Configuration.codeConceptURI(conceptCode, conceptName), OWL.Class);
+		Resource concept = conceptModel.createResource(dimension.codeConceptURI(), OWL.Class);
 		concept.addProperty(RDF.type, RDFS.Class);
 		concept.addProperty(RDFS.subClassOf, SKOS.Concept);
 		concept.addProperty(SKOS.prefLabel, conceptModel.createLiteral(conceptName, "fr"));
@@ -208,13 +243,13 @@ public class DSDModelMaker {
 		scheme.addProperty(RDFS.seeAlso, concept);
 		concept.addProperty(RDFS.seeAlso, scheme);
 
-		for (int rowIndex = firstLineIndex + 1; rowIndex <= lastLineIndex; rowIndex++) {
+		for (int rowIndex = dimension.getFirstDefinitionLineIndex() + 1; rowIndex <= dimension.getLastDefinitionLineIndex(); rowIndex++) {
 
 			String entryTitle = variableListSheet.getRow(rowIndex).getCell(0).toString();
 
 			String entryCode = entryTitle.split(":")[0].trim();
 			String entryName = entryTitle.split(":")[1].trim();
-			Resource entry = conceptModel.createResource(Configuration.codeItemURI(conceptCode, entryCode), concept);
+			Resource entry = conceptModel.createResource(dimension.codeItemURI(entryCode), concept);
 			entry.addProperty(RDF.type, SKOS.Concept); // For stupid clients
 			entry.addProperty(SKOS.notation, entryCode);
 			entry.addProperty(SKOS.prefLabel, conceptModel.createLiteral(entryName, "fr"));
@@ -229,59 +264,67 @@ public class DSDModelMaker {
 	 * 
 	 * @return The Data Cube data structure definition as a Jena model.
 	 */
-	public static Model getPOP5DSDModel() { // TODO Distinguish COM and/or ARM ?
+	public Model getDSDModel() { // TODO Distinguish COM and/or ARM ?
 
-		Model pop5DSDModel = ModelFactory.createDefaultModel();
-		pop5DSDModel.setNsPrefixes(Configuration.DSD_PREFIXES);
+		Model dsdModel = ModelFactory.createDefaultModel();
+		dsdModel.setNsPrefixes(Configuration.DSD_PREFIXES);
+		int geoYear = descriptor.getGeoYear();
 
 		// Creation of the DSD
-		Resource pop5DSD = pop5DSDModel.createResource(Configuration.dsdURI(Configuration.REFERENCE_YEAR + "-depcomarm"), DataCubeOntology.DataStructureDefinition);
-		pop5DSD.addProperty(RDFS.label, pop5DSDModel.createLiteral("Définition de structure de données pour POP5, année " + Configuration.REFERENCE_YEAR, "fr"));
-		pop5DSD.addProperty(RDFS.label, pop5DSDModel.createLiteral("Data structure definition pour POP5, year " + Configuration.REFERENCE_YEAR, "en"));
-		pop5DSD.addProperty(DC.description, pop5DSDModel.createLiteral("Population de 15 ans et plus par tranche d'âge, sexe et type d'activité, année " + Configuration.REFERENCE_YEAR, "fr"));
-		pop5DSD.addProperty(DC.description, pop5DSDModel.createLiteral("Population age 15 or more by age group, sex and type of activity, year " + Configuration.REFERENCE_YEAR, "en"));
-		pop5DSD.addProperty(DCTerms.identifier, pop5DSDModel.createLiteral("DSD-POP5-DEPCOMARM", "fr"));
-		logger.info("Creating DSD " + pop5DSD.getURI());
+		Resource dsd = dsdModel.createResource(descriptor.dsdURI(), DataCubeOntology.DataStructureDefinition);
+		for (Map.Entry<String, String> label : descriptor.getDSDLabels().entrySet()) dsd.addProperty(RDFS.label, dsdModel.createLiteral(label.getValue(), label.getKey()));
+		for (Map.Entry<String, String> description : descriptor.getDSDDescriptions().entrySet()) dsd.addProperty(DC.description, dsdModel.createLiteral(description.getValue(), description.getKey()));
+		dsd.addProperty(DCTerms.identifier, dsdModel.createLiteral(descriptor.getDSDIdentifier(), "fr"));
+		logger.info("Creating DSD " + dsd.getURI());
 
 		// Create the geographic dimension property
-		Resource pop5GeoDimensionProperty = pop5DSDModel.createResource(Configuration.geoDimensionURI, DataCubeOntology.DimensionProperty).addProperty(RDF.type, DataCubeOntology.CodedProperty);
-		pop5GeoDimensionProperty.addProperty(RDFS.subPropertyOf, pop5DSDModel.createResource("http://purl.org/linked-data/sdmx/2009/dimension#refArea"));
-		pop5GeoDimensionProperty.addProperty(RDFS.label, pop5DSDModel.createLiteral("Département, commune ou arrondissement municipal (COG " + Configuration.REFERENCE_YEAR_GEO + ")", "fr"));
-		pop5GeoDimensionProperty.addProperty(DataCubeOntology.concept, pop5DSDModel.createResource("http://purl.org/linked-data/sdmx/2009/concept#refArea")); // Could create specific sub-concept
-		pop5GeoDimensionProperty.addProperty(DCTerms.identifier, pop5DSDModel.createLiteral("COG" + Configuration.REFERENCE_YEAR_GEO, "fr"));
-		pop5GeoDimensionProperty.addProperty(RDFS.range, pop5DSDModel.createResource(Configuration.GEO_CODE_CONCEPT_URI));
-		pop5GeoDimensionProperty.addProperty(DataCubeOntology.codeList, pop5DSDModel.createResource(Configuration.GEO_CONCEPT_SCHEME_URI));
+		Resource geoDimensionProperty = dsdModel.createResource(descriptor.geoDimensionURI(), DataCubeOntology.DimensionProperty).addProperty(RDF.type, DataCubeOntology.CodedProperty);
+		geoDimensionProperty.addProperty(RDFS.subPropertyOf, dsdModel.createResource(Configuration.SDMX_DIMENSION_BASE_URI + "refArea"));
+		geoDimensionProperty.addProperty(RDFS.label, dsdModel.createLiteral("Département, commune ou arrondissement municipal (COG " + geoYear + ")", "fr"));
+		geoDimensionProperty.addProperty(DataCubeOntology.concept, dsdModel.createResource(Configuration.SDMX_CONCEPT_BASE_URI + "refArea")); // Could create specific sub-concept
+		geoDimensionProperty.addProperty(DCTerms.identifier, dsdModel.createLiteral("COG" + geoYear, "fr"));
+		geoDimensionProperty.addProperty(RDFS.range, dsdModel.createResource(Configuration.geoCodeConceptURI(geoYear)));
+		geoDimensionProperty.addProperty(DataCubeOntology.codeList, dsdModel.createResource(Configuration.geoConceptSchemeURI(geoYear)));
 		// Attach the geographic dimension property to the DSD through anonymous ComponentSpecification
-		pop5DSD.addProperty(DataCubeOntology.component, pop5DSDModel.createResource(DataCubeOntology.ComponentSpecification).addProperty(DataCubeOntology.dimension, pop5GeoDimensionProperty));
+		dsd.addProperty(DataCubeOntology.component, dsdModel.createResource(DataCubeOntology.ComponentSpecification).addProperty(DataCubeOntology.dimension, geoDimensionProperty));
 
 		// Create the other dimension properties
-		for (String variable : Configuration.VARIABLE_DEFINITIONS) {
-			String conceptCode = getConceptCode(variable);
-			String conceptName = getConceptName(variable);
-			String sdmxBroaderConcept = Configuration.getSDMXBroaderConcept(conceptCode);
+		for (TableDescriptor.Dimension dimension : descriptor.getDimensions()) {
+			String[] conceptTitle = getConceptTitle(dimension);
+			String sdmxBroaderConcept = dimension.getSDMXConcept();
 			// Create the dimension property
-			Resource dimensionProperty = pop5DSDModel.createResource(Configuration.componentURI("dimension", conceptCode), DataCubeOntology.DimensionProperty).addProperty(RDF.type, DataCubeOntology.CodedProperty);
-			if (sdmxBroaderConcept != null) dimensionProperty.addProperty(RDFS.subPropertyOf, pop5DSDModel.createResource("http://purl.org/linked-data/sdmx/2009/dimension#" + sdmxBroaderConcept));
-			dimensionProperty.addProperty(RDFS.label, pop5DSDModel.createLiteral(conceptName, "fr"));
+			Resource dimensionProperty = dsdModel.createResource(dimension.propertyURI(), DataCubeOntology.DimensionProperty).addProperty(RDF.type, DataCubeOntology.CodedProperty);
+			if (sdmxBroaderConcept != null) dimensionProperty.addProperty(RDFS.subPropertyOf, dsdModel.createResource(Configuration.SDMX_DIMENSION_BASE_URI + sdmxBroaderConcept));
+			dimensionProperty.addProperty(RDFS.label, dsdModel.createLiteral(conceptTitle[1], "fr"));
 			// If there is a SDMX concept, use it (we could also create a specific sub-concept), otherwise create ad hoc concept
-			if (sdmxBroaderConcept != null) dimensionProperty.addProperty(DataCubeOntology.concept, pop5DSDModel.createResource("http://purl.org/linked-data/sdmx/2009/concept#" + sdmxBroaderConcept));
-			else dimensionProperty.addProperty(DataCubeOntology.concept, pop5DSDModel.createResource(Configuration.conceptURI(conceptCode,conceptName)));
-			dimensionProperty.addProperty(DCTerms.identifier, pop5DSDModel.createLiteral(conceptCode, "fr"));
-			dimensionProperty.addProperty(RDFS.range, pop5DSDModel.createResource(Configuration.codeConceptURI(conceptCode, conceptName)));
-			dimensionProperty.addProperty(DataCubeOntology.codeList, pop5DSDModel.createResource(Configuration.conceptSchemeURI(conceptCode, conceptName)));
+			if (sdmxBroaderConcept != null) dimensionProperty.addProperty(DataCubeOntology.concept, dsdModel.createResource(Configuration.SDMX_CONCEPT_BASE_URI + sdmxBroaderConcept));
+			else dimensionProperty.addProperty(DataCubeOntology.concept, dsdModel.createResource(dimension.conceptURI()));
+			dimensionProperty.addProperty(DCTerms.identifier, dsdModel.createLiteral(conceptTitle[0], "fr"));
+			dimensionProperty.addProperty(RDFS.range, dsdModel.createResource(dimension.codeConceptURI()));
+			dimensionProperty.addProperty(DataCubeOntology.codeList, dsdModel.createResource(dimension.conceptSchemeURI()));
 			// Attach the dimension property to the DSD through anonymous ComponentSpecification
-			pop5DSD.addProperty(DataCubeOntology.component, pop5DSDModel.createResource(DataCubeOntology.ComponentSpecification).addProperty(DataCubeOntology.dimension, dimensionProperty));
+			dsd.addProperty(DataCubeOntology.component, dsdModel.createResource(DataCubeOntology.ComponentSpecification).addProperty(DataCubeOntology.dimension, dimensionProperty));
+		}
+
+		// Create the slice key used by the abbreviated form of the data set: all dimensions except the last one
+		Resource sliceKey = dsdModel.createResource(descriptor.sliceKeyURI(), DataCubeOntology.SliceKey);
+		for (Map.Entry<String, String> label : descriptor.getSliceKeyLabels().entrySet()) sliceKey.addProperty(RDFS.label, dsdModel.createLiteral(label.getValue(), label.getKey()));
+		sliceKey.addProperty(DataCubeOntology.componentProperty, geoDimensionProperty);
+		for (TableDescriptor.Dimension dimension : descriptor.getDimensions().subList(0, descriptor.getDimensions().size() - 1)) {
+			sliceKey.addProperty(DataCubeOntology.componentProperty, dsdModel.createResource(dimension.propertyURI()));
 		}
+		dsd.addProperty(DataCubeOntology.sliceKey, sliceKey);
 
 		// Create and attach the measure property
-		Resource measureProperty = pop5DSDModel.createResource(Configuration.POP_MEASURE_URI, DataCubeOntology.MeasureProperty); // The component is not coded
-		measureProperty.addProperty(RDFS.subPropertyOf, pop5DSDModel.createResource(Configuration.SDMX_OBS_VALUE_MEASURE_URI));
-		measureProperty.addProperty(RDFS.label, pop5DSDModel.createLiteral(Configuration.POP_MEASURE_NAME, "fr"));
-		measureProperty.addProperty(DCTerms.identifier, pop5DSDModel.createLiteral(Configuration.POP_MEASURE_ID, "fr"));
-		measureProperty.addProperty(DataCubeOntology.concept, pop5DSDModel.createResource(Configuration.POP_CONCEPT_URI));
+		Resource measureProperty = dsdModel.createResource(descriptor.getMeasureURI(), DataCubeOntology.MeasureProperty); // The component is not coded
+		measureProperty.addProperty(RDFS.subPropertyOf, dsdModel.createResource(Configuration.SDMX_OBS_VALUE_MEASURE_URI));
+		measureProperty.addProperty(RDFS.label, dsdModel.createLiteral(descriptor.getMeasureName(), "fr"));
+		measureProperty.addProperty(DCTerms.identifier, dsdModel.createLiteral(descriptor.getMeasureId(), "fr"));
+		measureProperty.addProperty(DataCubeOntology.concept, dsdModel.createResource(descriptor.getMeasureConceptURI()));
 		measureProperty.addProperty(RDFS.range, XSD.xint);
-		pop5DSD.addProperty(DataCubeOntology.component, pop5DSDModel.createResource(DataCubeOntology.ComponentSpecification).addProperty(DataCubeOntology.measure, measureProperty));
+		dsd.addProperty(DataCubeOntology.component, dsdModel.createResource(DataCubeOntology.ComponentSpecification).addProperty(DataCubeOntology.measure, measureProperty));
 
-		return pop5DSDModel;
+		return dsdModel;
 	}
+
 }
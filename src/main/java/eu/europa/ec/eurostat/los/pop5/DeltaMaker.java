@@ -0,0 +1,363 @@
+package eu.europa.ec.eurostat.los.pop5;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.riot.RDFFormat;
+import org.apache.jena.riot.out.NodeFmtLib;
+import org.apache.jena.riot.system.StreamRDF;
+import org.apache.jena.riot.system.StreamRDFWriter;
+import org.apache.jena.vocabulary.RDF;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import eu.europa.ec.eurostat.los.utils.DataCubeOntology;
+
+/**
+ * The <code>DeltaMaker</code> class compares two versions of a table workbook and publishes the changed observations only.
+ *
+ * Each workbook is read once with the POI event API and its data rows are spilled to temporary files, one per sheet. The
+ * spilled rows of both workbooks are then merged in geographic code order, so that only one row of each workbook is in memory
+ * at a time. Two outputs are produced:
+ * <ul>
+ * <li>a delta file containing three data sets: added observations, removed observations (with their previous values)
+ * and changed observations (with their new values);</li>
+ * <li>a <a href="https://afs.github.io/rdf-patch/">RDF Patch</a> that transforms the previous data set into the new one.</li>
+ * </ul>
+ * The delta data sets are always in the normalized form. The patch must match the published data set, so it is written in the normalized or
+ * abbreviated form: in the abbreviated form, the triples of a slice are added with the first observation of the slice and deleted with its last one.
+ * Departemental observations are also compared, since they are aggregated from the municipalities.
+ *
+ * Only workbooks are compared. The data sets generated by {@link DataSetModelMaker} could also be merged in a streaming way (the
+ * observations of each sheet are written in geographic code order), but this would require reading the codes back from the item URIs
+ * and the slices of the abbreviated form, and it is not implemented.
+ */
+public class DeltaMaker {
+
+	private static Logger logger = LogManager.getLogger(DeltaMaker.class);
+
+	private TableDescriptor descriptor;
+	/** Produces the triples of the observations of the delta data sets, in the normalized form */
+	private ObservationWriter observationWriter;
+	/** Produces the triples of the observations as written by <code>DataSetModelMaker</code>, used for the patch */
+	private ObservationWriter dataSetWriter;
+	private boolean abbreviated;
+
+	private Node addedDataSet;
+	private Node removedDataSet;
+	private Node changedDataSet;
+	private Node measureProperty;
+
+	private StreamRDF deltaStream = null;
+	private PrintWriter patchWriter = null;
+
+	private long added = 0;
+	private long removed = 0;
+	private long changed = 0;
+
+	public static void main(String[] args) throws Exception {
+
+		if (args.length < 2) {
+			logger.error("Usage: DeltaMaker <previous workbook> <new workbook> [<table descriptor>]");
+			return;
+		}
+		TableDescriptor descriptor = TableDescriptor.load((args.length > 2) ? args[2] : Configuration.POP5_DESCRIPTOR_FILE_NAME);
+
+		String baseName = Configuration.DATA_DIRECTORY + "delta-" + descriptor.getId().toLowerCase();
+		try (OutputStream deltaOutput = new BufferedOutputStream(new FileOutputStream(baseName + ".ttl"));
+				PrintWriter patchWriter = new PrintWriter(new OutputStreamWriter(new FileOutputStream(baseName + ".rdfp"), StandardCharsets.UTF_8))) {
+			new DeltaMaker(descriptor, new CodeListCache(), Configuration.ABBREVIATED_OUTPUT).compare(args[0], args[1], deltaOutput, patchWriter);
+		}
+	}
+
+	/**
+	 * @param descriptor The descriptor of the table.
+	 * @param cache The cache of code list nodes.
+	 * @param abbreviated Indicates if the published data set is in the abbreviated form.
+	 */
+	public DeltaMaker(TableDescriptor descriptor, CodeListCache cache, boolean abbreviated) {
+
+		this.descriptor = descriptor;
+		this.abbreviated = abbreviated;
+		this.observationWriter = new ObservationWriter(descriptor, cache, (StreamRDF) null, false);
+		this.dataSetWriter = abbreviated ? new ObservationWriter(descriptor, cache, (StreamRDF) null, true) : observationWriter;
+		addedDataSet = NodeFactory.createURI(descriptor.dataSetURI() + "-added");
+		removedDataSet = NodeFactory.createURI(descriptor.dataSetURI() + "-removed");
+		changedDataSet = NodeFactory.createURI(descriptor.dataSetURI() + "-changed");
+		measureProperty = cache.property(descriptor.getMeasureURI());
+	}
+
+	/**
+	 * Compares two versions of a table workbook and writes the delta data sets and the RDF Patch.
+	 *
+	 * @param previousFileName The name of the previous version of the workbook.
+	 * @param newFileName The name of the new version of the workbook.
+	 * @param deltaOutput The stream where the delta data sets are written (in Turtle).
+	 * @param patchWriter The writer where the RDF Patch is written.
+	 */
+	public void compare(String previousFileName, String newFileName, OutputStream deltaOutput, PrintWriter patchWriter) throws IOException {
+
+		try (SpilledTable previousTable = new SpilledTable(previousFileName); SpilledTable newTable = new SpilledTable(newFileName)) {
+
+			this.patchWriter = patchWriter;
+			deltaStream = StreamRDFWriter.getWriterStream(deltaOutput, RDFFormat.TURTLE_BLOCKS);
+			deltaStream.start();
+			for (Map.Entry<String, String> prefix : ObservationWriter.getPrefixes(descriptor).entrySet()) deltaStream.prefix(prefix.getKey(), prefix.getValue());
+			Node structure = NodeFactory.createURI(descriptor.dsdURI());
+			for (Node dataSet : new Node[] {addedDataSet, removedDataSet, changedDataSet}) {
+				deltaStream.triple(Triple.create(dataSet, RDF.Nodes.type, DataCubeOntology.Nodes.DataSet));
+				deltaStream.triple(Triple.create(dataSet, DataCubeOntology.Nodes.structure, structure));
+			}
+			patchWriter.println("TX .");
+
+			// Departemental totals are accumulated for both versions (their size does not depend on the number of municipalities)
+			SortedMap<String, Map<List<String>, Float>> previousDepartements = new TreeMap<String, Map<List<String>, Float>>();
+			SortedMap<String, Map<List<String>, Float>> newDepartements = new TreeMap<String, Map<List<String>, Float>>();
+
+			// Process the sheets in the order of the descriptor (normally municipalities, then arrondissements)
+			for (int sheetIndex : descriptor.getSheetIndexes()) {
+				try (SpilledRows previousRows = previousTable.getRows(sheetIndex); SpilledRows newRows = newTable.getRows(sheetIndex)) {
+					while (previousRows.hasNext() || newRows.hasNext()) {
+						int order = !previousRows.hasNext() ? 1 : !newRows.hasNext() ? -1 : Configuration.GEO_CODE_ORDER.compare(previousRows.peekCode(), newRows.peekCode());
+						String geoCode = (order <= 0) ? previousRows.peekCode() : newRows.peekCode();
+						Map<List<String>, Float> previousValues = (order <= 0) ? previousRows.next() : new HashMap<List<String>, Float>();
+						Map<List<String>, Float> newValues = (order >= 0) ? newRows.next() : new HashMap<List<String>, Float>();
+						compareObservations(geoCode, previousValues, newValues);
+						if ((descriptor.getCommuneSheetIndex() != null) && (descriptor.getCommuneSheetIndex() == sheetIndex)) {
+							addToDepartement(previousDepartements, geoCode, previousValues);
+							addToDepartement(newDepartements, geoCode, newValues);
+						}
+					}
+				}
+			}
+			// Then the departements
+			for (String depCode : previousDepartements.keySet()) {
+				Map<List<String>, Float> newValues = newDepartements.remove(depCode);
+				compareObservations(depCode, previousDepartements.get(depCode), (newValues == null) ? new HashMap<List<String>, Float>() : newValues);
+			}
+			for (Map.Entry<String, Map<List<String>, Float>> entry : newDepartements.entrySet()) compareObservations(entry.getKey(), new HashMap<List<String>, Float>(), entry.getValue());
+
+			patchWriter.println("TC .");
+			deltaStream.finish();
+			patchWriter.flush();
+		}
+		logger.info("Delta complete: " + added + " observations added, " + removed + " removed, " + changed + " changed");
+	}
+
+	/**
+	 * Compares the observations of a geographic area in both versions.
+	 *
+	 * @param geoCode The code of the geographic area.
+	 * @param previousValues The previous measure values, indexed by the codes of the other dimensions.
+	 * @param newValues The new measure values, indexed in the same way.
+	 */
+	private void compareObservations(String geoCode, Map<List<String>, Float> previousValues, Map<List<String>, Float> newValues) {
+
+		// In the abbreviated form, the slices are identified by the codes of all dimensions except the last one
+		Map<List<String>, String[]> previousSlices = getSlices(previousValues);
+		Map<List<String>, String[]> newSlices = getSlices(newValues);
+
+		for (Map.Entry<List<String>, Float> previous : previousValues.entrySet()) {
+			String[] dimensionCodes = previous.getKey().toArray(new String[0]);
+			Float newValue = newValues.get(previous.getKey());
+			if (newValue == null) {
+				removed++;
+				for (Triple triple : dataSetWriter.getObservationTriples(geoCode, dimensionCodes, previous.getValue())) patchWriter.println("D " + toPatch(triple));
+				writeDeltaObservation(removedDataSet, observationWriter.getObservationTriples(geoCode, dimensionCodes, previous.getValue()));
+			} else if (!newValue.equals(previous.getValue())) {
+				changed++;
+				Node observation = NodeFactory.createURI(descriptor.observationURI(geoCode, dimensionCodes));
+				patchWriter.println("D " + toPatch(Triple.create(observation, measureProperty, ObservationWriter.measureNode(previous.getValue()))));
+				patchWriter.println("A " + toPatch(Triple.create(observation, measureProperty, ObservationWriter.measureNode(newValue))));
+				writeDeltaObservation(changedDataSet, observationWriter.getObservationTriples(geoCode, dimensionCodes, newValue));
+			}
+		}
+		for (Map.Entry<List<String>, String[]> slice : previousSlices.entrySet()) {
+			if (newSlices.containsKey(slice.getKey())) continue;
+			for (Triple triple : dataSetWriter.getSliceTriples(geoCode, slice.getValue())) patchWriter.println("D " + toPatch(triple));
+		}
+		for (Map.Entry<List<String>, String[]> slice : newSlices.entrySet()) {
+			if (previousSlices.containsKey(slice.getKey())) continue;
+			for (Triple triple : dataSetWriter.getSliceTriples(geoCode, slice.getValue())) patchWriter.println("A " + toPatch(triple));
+		}
+		for (Map.Entry<List<String>, Float> entry : newValues.entrySet()) {
+			if (previousValues.containsKey(entry.getKey())) continue;
+			added++;
+			String[] dimensionCodes = entry.getKey().toArray(new String[0]);
+			for (Triple triple : dataSetWriter.getObservationTriples(geoCode, dimensionCodes, entry.getValue())) patchWriter.println("A " + toPatch(triple));
+			writeDeltaObservation(addedDataSet, observationWriter.getObservationTriples(geoCode, dimensionCodes, entry.getValue()));
+		}
+	}
+
+	/**
+	 * Returns the slices containing observations in the abbreviated form (none in the normalized form). A slice is identified by the codes
+	 * of all the dimensions of its observations except the last one, and is mapped to the dimension codes of one of its observations.
+	 */
+	private Map<List<String>, String[]> getSlices(Map<List<String>, Float> values) {
+
+		Map<List<String>, String[]> slices = new LinkedHashMap<List<String>, String[]>();
+		if (!abbreviated) return slices;
+		for (List<String> dimensionCodes : values.keySet()) slices.putIfAbsent(dimensionCodes.subList(0, dimensionCodes.size() - 1), dimensionCodes.toArray(new String[0]));
+		return slices;
+	}
+
+	/**
+	 * Writes an observation in the delta file, attached to one of the delta data sets instead of the table data set.
+	 */
+	private void writeDeltaObservation(Node deltaDataSet, List<Triple> triples) {
+
+		for (Triple triple : triples) {
+			if (triple.getPredicate().equals(DataCubeOntology.Nodes.dataSet)) deltaStream.triple(Triple.create(triple.getSubject(), DataCubeOntology.Nodes.dataSet, deltaDataSet));
+			else deltaStream.triple(triple);
+		}
+	}
+
+	private static String toPatch(Triple triple) {
+		return NodeFmtLib.str(triple.getSubject()) + " " + NodeFmtLib.str(triple.getPredicate()) + " " + NodeFmtLib.str(triple.getObject()) + " .";
+	}
+
+	private static void addToDepartement(Map<String, Map<List<String>, Float>> departements, String geoCode, Map<List<String>, Float> values) {
+
+		Map<List<String>, Float> depMeasures = departements.computeIfAbsent(Configuration.getDepFromCommune(geoCode), code -> new HashMap<List<String>, Float>());
+		for (Map.Entry<List<String>, Float> entry : values.entrySet()) depMeasures.merge(entry.getKey(), entry.getValue(), Float::sum);
+	}
+
+	/**
+	 * The data rows of a workbook, read with the event API and spilled to temporary files (one per data sheet) after checking
+	 * that they are in geographic code order. Each line of a file contains the geographic code followed by the column indexes
+	 * and values of the data cells, separated by tabs.
+	 */
+	private class SpilledTable implements AutoCloseable {
+
+		private TableHeader header = null;
+		private Map<Integer, Path> sheetFiles = new HashMap<Integer, Path>();
+
+		SpilledTable(String fileName) throws IOException {
+
+			Map<Integer, BufferedWriter> writers = new HashMap<Integer, BufferedWriter>();
+			Map<Integer, String> lastCodes = new HashMap<Integer, String>();
+			Exception failure = null;
+			try {
+				header = new TableReader(descriptor).read(fileName, (sheetIndex, geoCode, columnIndexes, values, size) -> {
+					String lastCode = lastCodes.put(sheetIndex, geoCode);
+					if ((lastCode != null) && (Configuration.GEO_CODE_ORDER.compare(lastCode, geoCode) >= 0)) {
+						throw new IllegalStateException(fileName + ": geographic codes are not in increasing order: " + geoCode + " after " + lastCode);
+					}
+					BufferedWriter writer = writers.get(sheetIndex);
+					if (writer == null) {
+						Path sheetFile = Files.createTempFile("delta-", ".rows");
+						sheetFiles.put(sheetIndex, sheetFile);
+						writer = Files.newBufferedWriter(sheetFile, StandardCharsets.UTF_8);
+						writers.put(sheetIndex, writer);
+					}
+					writer.write(geoCode);
+					for (int index = 0; index < size; index++) writer.write("\t" + columnIndexes[index] + ":" + Float.toString((float) values[index]));
+					writer.newLine();
+				});
+			} catch (IOException | RuntimeException e) {
+				failure = e;
+			}
+			// The writers are closed before the files are deleted on failure, since open files cannot be deleted on Windows
+			for (BufferedWriter writer : writers.values()) {
+				try {
+					writer.close();
+				} catch (IOException e) {
+					if (failure == null) failure = e;
+					else failure.addSuppressed(e);
+				}
+			}
+			if (failure == null) return;
+			close();
+			if (failure instanceof IOException) throw (IOException) failure;
+			throw (RuntimeException) failure;
+		}
+
+		SpilledRows getRows(int sheetIndex) throws IOException {
+			return new SpilledRows(sheetFiles.get(sheetIndex), header);
+		}
+
+		@Override
+		public void close() throws IOException {
+			for (Path sheetFile : sheetFiles.values()) Files.deleteIfExists(sheetFile);
+		}
+	}
+
+	/**
+	 * Iterates on the rows of a spilled sheet. Each row is returned as a map between the codes of the other dimensions and the measure values.
+	 */
+	private static class SpilledRows implements Iterator<Map<List<String>, Float>>, AutoCloseable {
+
+		private BufferedReader reader = null;
+		private TableHeader header;
+		private String[] nextFields = null;
+
+		/**
+		 * @param sheetFile The spilled sheet, <code>null</code> if the sheet has no data rows.
+		 */
+		SpilledRows(Path sheetFile, TableHeader header) throws IOException {
+
+			this.header = header;
+			if (sheetFile == null) return;
+			reader = Files.newBufferedReader(sheetFile, StandardCharsets.UTF_8);
+			advance();
+		}
+
+		@Override
+		public boolean hasNext() {
+			return (nextFields != null);
+		}
+
+		String peekCode() {
+			return nextFields[0];
+		}
+
+		@Override
+		public Map<List<String>, Float> next() {
+
+			Map<List<String>, Float> values = new HashMap<List<String>, Float>();
+			for (int index = 1; index < nextFields.length; index++) {
+				int separatorIndex = nextFields[index].indexOf(':');
+				String[] dimensionCodes = header.getCodes(Integer.parseInt(nextFields[index].substring(0, separatorIndex)));
+				if (dimensionCodes != null) values.put(Arrays.asList(dimensionCodes), Float.parseFloat(nextFields[index].substring(separatorIndex + 1)));
+			}
+			advance();
+			return values;
+		}
+
+		private void advance() {
+
+			try {
+				String line = reader.readLine();
+				nextFields = (line == null) ? null : line.split("\t");
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (reader != null) reader.close();
+		}
+	}
+}
@@ -0,0 +1,345 @@
+package eu.europa.ec.eurostat.los.pop5;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFDataMgr;
+import org.apache.jena.riot.out.NodeFmtLib;
+import org.apache.jena.riot.system.StreamRDF;
+import org.apache.jena.riot.system.StreamRDFBase;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import eu.europa.ec.eurostat.los.utils.DataCubeOntology;
+
+/**
+ * The <code>ObservationCube</code> class holds Data Cube observations in memory, indexed by dimension value.
+ *
+ * Observations are stored column-wise: each dimension value is encoded as an integer in a per-dimension dictionary,
+ * and the measure values are kept in a float array. For each dimension and each code, the list of observations
+ * having this code is also kept, so that slices and aggregates are computed without any join.
+ *
+ * Level dimensions can be derived from coded dimensions: their value is the type of the code, taken from the segment preceding
+ * the code in the code item URI (for example <code>commune</code> for <code>http://id.insee.fr/codes/cog2017/commune/75056</code>).
+ * They allow to select the observations of one level of a hierarchical code list, for which the aggregates are not double-counted.
+ *
+ * Only the normalized form of the Data Cube is supported: loading a data set in abbreviated form (with slices) fails.
+ */
+public class ObservationCube {
+
+	private static Logger logger = LogManager.getLogger(ObservationCube.class);
+
+	private static final int INITIAL_CAPACITY = 1 << 16;
+
+	/** Names of the dimensions (used in queries) and corresponding dimension property URIs */
+	private final String[] dimensionNames;
+	private final Map<String, Integer> dimensionIndexes = new HashMap<String, Integer>();
+	private final Map<String, Integer> dimensionPropertyIndexes = new HashMap<String, Integer>();
+	/** For each dimension, the index of the level dimension derived from it (or -1) */
+	private final int[] levelDimensionIndexes;
+	private final String measureURI;
+
+	/** Dictionaries of codes for each dimension */
+	private final List<Map<String, Integer>> codeIds = new ArrayList<Map<String, Integer>>();
+	private final List<List<String>> codes = new ArrayList<List<String>>();
+
+	/** Observation storage: one column per dimension, plus the measure column */
+	private int[][] columns;
+	private float[] measures;
+	private int size = 0;
+
+	/** For each dimension and each code identifier, the sorted list of observations having this code */
+	private int[][][] postings = null;
+
+	/** Observation being read */
+	private Node currentSubject = null;
+	private int[] currentCodes;
+	private float currentMeasure;
+	private boolean currentHasMeasure;
+	private long incompleteObservations = 0;
+
+	/**
+	 * Creates an empty cube.
+	 *
+	 * @param dimensions Map between dimension names and dimension property URIs, in dimension order.
+	 * @param measureURI URI of the measure property.
+	 */
+	public ObservationCube(LinkedHashMap<String, String> dimensions, String measureURI) {
+		this(dimensions, new LinkedHashMap<String, String>(), measureURI);
+	}
+
+	/**
+	 * Creates an empty cube with level dimensions.
+	 *
+	 * @param dimensions Map between dimension names and dimension property URIs, in dimension order.
+	 * @param levelDimensions Map between the names of the level dimensions and the names of the dimensions they are derived from.
+	 * @param measureURI URI of the measure property.
+	 */
+	public ObservationCube(LinkedHashMap<String, String> dimensions, LinkedHashMap<String, String> levelDimensions, String measureURI) {
+
+		List<String> names = new ArrayList<String>(dimensions.keySet());
+		names.addAll(levelDimensions.keySet());
+		this.dimensionNames = names.toArray(new String[0]);
+		this.measureURI = measureURI;
+		for (int index = 0; index < dimensionNames.length; index++) {
+			if (dimensionIndexes.put(dimensionNames[index], index) != null) throw new IllegalArgumentException("Duplicate dimension name: " + dimensionNames[index]);
+			codeIds.add(new HashMap<String, Integer>());
+			codes.add(new ArrayList<String>());
+		}
+		int index = 0;
+		for (String propertyURI : dimensions.values()) dimensionPropertyIndexes.put(propertyURI, index++);
+		levelDimensionIndexes = new int[dimensionNames.length];
+		Arrays.fill(levelDimensionIndexes, -1);
+		for (Map.Entry<String, String> levelDimension : levelDimensions.entrySet()) {
+			Integer dimension = dimensions.containsKey(levelDimension.getValue()) ? dimensionIndexes.get(levelDimension.getValue()) : null;
+			if (dimension == null) throw new IllegalArgumentException("Unknown dimension for level " + levelDimension.getKey() + ": " + levelDimension.getValue());
+			levelDimensionIndexes[dimension] = dimensionIndexes.get(levelDimension.getKey());
+		}
+		columns = new int[dimensionNames.length][INITIAL_CAPACITY];
+		measures = new float[INITIAL_CAPACITY];
+		currentCodes = new int[dimensionNames.length];
+		resetCurrent(null);
+	}
+
+	/**
+	 * Streams a RDF file and adds the observations it contains to the cube.
+	 * The triples of each observation are expected to be contiguous, which is the case for files written by <code>DataSetModelMaker</code>.
+	 *
+	 * @param fileName The name of the file to load.
+	 */
+	public void load(String fileName) {
+
+		if (postings != null) throw new IllegalStateException("The cube is already indexed");
+		logger.info("Loading observations from " + fileName);
+		RDFDataMgr.parse(getLoader(), fileName);
+		flushCurrent();
+		logger.info("Number of observations in cube: " + size);
+	}
+
+	/**
+	 * Streams RDF content and adds the observations it contains to the cube.
+	 *
+	 * @param input The RDF content.
+	 * @param language The RDF syntax of the content.
+	 */
+	public void load(InputStream input, Lang language) {
+
+		if (postings != null) throw new IllegalStateException("The cube is already indexed");
+		RDFDataMgr.parse(getLoader(), input, language);
+		flushCurrent();
+		logger.info("Number of observations in cube: " + size);
+	}
+
+	private StreamRDF getLoader() {
+
+		return new StreamRDFBase() {
+			@Override
+			public void triple(Triple triple) {
+				addTriple(triple);
+			}
+		};
+	}
+
+	/**
+	 * Builds the dimension indexes. Must be called once all the files are loaded.
+	 */
+	public void index() {
+
+		if (incompleteObservations > 0) logger.warn("Incomplete observations ignored: " + incompleteObservations);
+		postings = new int[dimensionNames.length][][];
+		for (int dimension = 0; dimension < dimensionNames.length; dimension++) {
+			int[] counts = new int[codes.get(dimension).size()];
+			for (int observation = 0; observation < size; observation++) counts[columns[dimension][observation]]++;
+			postings[dimension] = new int[counts.length][];
+			for (int code = 0; code < counts.length; code++) postings[dimension][code] = new int[counts[code]];
+			Arrays.fill(counts, 0);
+			for (int observation = 0; observation < size; observation++) {
+				int code = columns[dimension][observation];
+				postings[dimension][code][counts[code]++] = observation;
+			}
+		}
+		logger.info("Cube indexed, number of observations: " + size);
+	}
+
+	/**
+	 * Returns the sum of the measure for the observations matching the filters.
+	 *
+	 * @param filters Map between dimension names and codes.
+	 * @return The sum of the measure values.
+	 */
+	public double total(Map<String, String> filters) {
+
+		double total = 0;
+		for (int observation : select(filters)) total += measures[observation];
+		return total;
+	}
+
+	/**
+	 * Returns the sums of the measure for the observations matching the filters, grouped by the values of a dimension.
+	 *
+	 * @param dimensionName The name of the dimension used for grouping.
+	 * @param filters Map between dimension names and codes.
+	 * @return A map between the codes of the grouping dimension and the corresponding sums.
+	 */
+	public SortedMap<String, Double> groupBy(String dimensionName, Map<String, String> filters) {
+
+		int dimension = getDimensionIndex(dimensionName);
+		double[] sums = new double[codes.get(dimension).size()];
+		boolean[] present = new boolean[sums.length];
+		for (int observation : select(filters)) {
+			int code = columns[dimension][observation];
+			sums[code] += measures[observation];
+			present[code] = true;
+		}
+		SortedMap<String, Double> result = new TreeMap<String, Double>();
+		for (int code = 0; code < sums.length; code++) if (present[code]) result.put(codes.get(dimension).get(code), sums[code]);
+		return result;
+	}
+
+	/**
+	 * Returns the observations matching the filters.
+	 *
+	 * @param filters Map between dimension names and codes.
+	 * @param limit The maximum number of observations returned.
+	 * @return A list of observations, each given as its codes (in dimension order) followed by its measure value.
+	 */
+	public List<String[]> slice(Map<String, String> filters, int limit) {
+
+		List<String[]> result = new ArrayList<String[]>();
+		for (int observation : select(filters)) {
+			if (result.size() >= limit) break;
+			String[] values = new String[dimensionNames.length + 1];
+			for (int dimension = 0; dimension < dimensionNames.length; dimension++) values[dimension] = codes.get(dimension).get(columns[dimension][observation]);
+			values[dimensionNames.length] = Float.toString(measures[observation]);
+			result.add(values);
+		}
+		return result;
+	}
+
+	public String[] getDimensionNames() {
+		return dimensionNames.clone();
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Selects the observations matching all the filters: the shortest posting list is scanned and the other filters are checked on the columns.
+	 */
+	private int[] select(Map<String, String> filters) {
+
+		if (postings == null) throw new IllegalStateException("The cube is not indexed");
+		int[] dimensions = new int[filters.size()];
+		int[] values = new int[filters.size()];
+		int[] candidates = null;
+		int index = 0;
+		for (Map.Entry<String, String> filter : filters.entrySet()) {
+			dimensions[index] = getDimensionIndex(filter.getKey());
+			Integer code = codeIds.get(dimensions[index]).get(filter.getValue());
+			if (code == null) return new int[0];
+			values[index] = code;
+			int[] posting = postings[dimensions[index]][code];
+			if ((candidates == null) || (posting.length < candidates.length)) candidates = posting;
+			index++;
+		}
+		if (candidates == null) {
+			candidates = new int[size];
+			for (int observation = 0; observation < size; observation++) candidates[observation] = observation;
+			return candidates;
+		}
+		int[] selection = new int[candidates.length];
+		int selected = 0;
+		for (int observation : candidates) {
+			boolean matches = true;
+			for (int filter = 0; filter < dimensions.length && matches; filter++) matches = (columns[dimensions[filter]][observation] == values[filter]);
+			if (matches) selection[selected++] = observation;
+		}
+		return Arrays.copyOf(selection, selected);
+	}
+
+	private int getDimensionIndex(String dimensionName) {
+
+		Integer dimension = dimensionIndexes.get(dimensionName);
+		if (dimension == null) throw new IllegalArgumentException("Unknown dimension: " + dimensionName);
+		return dimension;
+	}
+
+	private void addTriple(Triple triple) {
+
+		if (!triple.getSubject().equals(currentSubject)) {
+			flushCurrent();
+			currentSubject = triple.getSubject();
+		}
+		Node predicate = triple.getPredicate();
+		if (!predicate.isURI()) return;
+		// In the abbreviated form, dimension values are attached to slices and would be lost
+		if (predicate.equals(DataCubeOntology.Nodes.slice) || predicate.equals(DataCubeOntology.Nodes.observation)) {
+			throw new IllegalStateException("Data set in abbreviated form (" + NodeFmtLib.str(triple.getPredicate()) + " found), it must be normalized with DataCubeNormalizer before loading");
+		}
+		if (measureURI.equals(predicate.getURI())) {
+			currentMeasure = Float.parseFloat(triple.getObject().getLiteralLexicalForm());
+			currentHasMeasure = true;
+			return;
+		}
+		Integer dimension = dimensionPropertyIndexes.get(predicate.getURI());
+		if (dimension == null) return;
+		// The code is the last segment of the code item URI, and its level the previous one
+		String value = triple.getObject().getURI();
+		int separatorIndex = value.lastIndexOf('/');
+		currentCodes[dimension] = getCodeId(dimension, value.substring(separatorIndex + 1));
+		int levelDimension = levelDimensionIndexes[dimension];
+		if (levelDimension >= 0) currentCodes[levelDimension] = getCodeId(levelDimension, value.substring(value.lastIndexOf('/', separatorIndex - 1) + 1, separatorIndex));
+	}
+
+	private int getCodeId(int dimension, String code) {
+
+		Integer codeId = codeIds.get(dimension).get(code);
+		if (codeId == null) {
+			codeId = codes.get(dimension).size();
+			codeIds.get(dimension).put(code, codeId);
+			codes.get(dimension).add(code);
+		}
+		return codeId;
+	}
+
+	private void flushCurrent() {
+
+		boolean complete = currentHasMeasure;
+		boolean empty = !currentHasMeasure;
+		for (int code : currentCodes) {
+			complete = complete && (code >= 0);
+			empty = empty && (code < 0);
+		}
+		if (!complete) {
+			if (!empty) incompleteObservations++;
+			resetCurrent(null);
+			return;
+		}
+		if (size == measures.length) {
+			for (int dimension = 0; dimension < columns.length; dimension++) columns[dimension] = Arrays.copyOf(columns[dimension], 2 * size);
+			measures = Arrays.copyOf(measures, 2 * size);
+		}
+		for (int dimension = 0; dimension < columns.length; dimension++) columns[dimension][size] = currentCodes[dimension];
+		measures[size] = currentMeasure;
+		size++;
+		resetCurrent(null);
+	}
+
+	private void resetCurrent(Node subject) {
+
+		currentSubject = subject;
+		Arrays.fill(currentCodes, -1);
+		currentHasMeasure = false;
+	}
+}
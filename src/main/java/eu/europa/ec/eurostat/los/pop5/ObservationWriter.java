@@ -0,0 +1,224 @@
+package eu.europa.ec.eurostat.los.pop5;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import org.apache.jena.datatypes.xsd.XSDDatatype;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.riot.RDFFormat;
+import org.apache.jena.riot.system.StreamRDF;
+import org.apache.jena.riot.system.StreamRDFWriter;
+import org.apache.jena.vocabulary.RDF;
+import org.apache.jena.vocabulary.RDFS;
+import org.apache.jena.vocabulary.XSD;
+
+import eu.europa.ec.eurostat.los.utils.DataCubeOntology;
+
+/**
+ * The <code>ObservationWriter</code> class writes the observations of a table directly to a RDF stream, without building a Jena model.
+ *
+ * Observations are written in the normalized or in the abbreviated Data Cube form. In the abbreviated form, the type of the observation
+ * is omitted (it can be inferred from <code>qb:dataSet</code>), and the values of all dimensions except the last one are attached to a
+ * slice which references the observation. The slices of a geographic area are written with its first observation, so the observations
+ * of an area must be written consecutively.
+ */
+public class ObservationWriter implements AutoCloseable {
+
+	private TableDescriptor descriptor;
+	private CodeListCache cache;
+	private boolean abbreviated;
+	private OutputStream output = null;
+	private StreamRDF stream = null;
+
+	private Node dataSet;
+	private Node sliceKey;
+	private Node geoDimensionProperty;
+	private Node[] dimensionProperties;
+	private Node measureProperty;
+
+	private String currentGeoCode = null;
+	private Set<String> writtenSlices = new HashSet<String>();
+	private long count = 0;
+
+	/**
+	 * Creates a writer on a RDF stream, which is not started nor finished by the writer.
+	 *
+	 * @param descriptor The descriptor of the table.
+	 * @param cache The cache of code list nodes.
+	 * @param stream The RDF stream.
+	 * @param abbreviated Indicates if the observations are written in the abbreviated form.
+	 */
+	public ObservationWriter(TableDescriptor descriptor, CodeListCache cache, StreamRDF stream, boolean abbreviated) {
+
+		this.descriptor = descriptor;
+		this.cache = cache;
+		this.stream = stream;
+		this.abbreviated = abbreviated;
+
+		dataSet = NodeFactory.createURI(descriptor.dataSetURI());
+		sliceKey = NodeFactory.createURI(descriptor.sliceKeyURI());
+		geoDimensionProperty = cache.property(descriptor.geoDimensionURI());
+		dimensionProperties = new Node[descriptor.getDimensions().size()];
+		for (int index = 0; index < dimensionProperties.length; index++) dimensionProperties[index] = cache.property(descriptor.getDimensions().get(index).propertyURI());
+		measureProperty = cache.property(descriptor.getMeasureURI());
+	}
+
+	/**
+	 * Opens a Turtle file and writes the prefixes.
+	 *
+	 * @param descriptor The descriptor of the table.
+	 * @param cache The cache of code list nodes.
+	 * @param fileName The name of the Turtle file.
+	 * @param abbreviated Indicates if the observations are written in the abbreviated form.
+	 */
+	public ObservationWriter(TableDescriptor descriptor, CodeListCache cache, String fileName, boolean abbreviated) throws IOException {
+
+		this(descriptor, cache, (StreamRDF) null, abbreviated);
+		output = new BufferedOutputStream(new FileOutputStream(fileName), 1 << 16);
+		stream = StreamRDFWriter.getWriterStream(output, RDFFormat.TURTLE_BLOCKS);
+		stream.start();
+		for (Map.Entry<String, String> prefix : getPrefixes(descriptor).entrySet()) stream.prefix(prefix.getKey(), prefix.getValue());
+	}
+
+	/**
+	 * Returns the prefix mappings used for the observations of a table.
+	 */
+	public static Map<String, String> getPrefixes(TableDescriptor descriptor) {
+
+		Map<String, String> prefixes = new LinkedHashMap<String, String>();
+		prefixes.put("rdfs", RDFS.getURI());
+		prefixes.put("xsd", XSD.getURI());
+		prefixes.put("qb", DataCubeOntology.getURI());
+		String basePrefix = "cog" + descriptor.getGeoYear();
+		prefixes.put(basePrefix, Configuration.cogBaseCodeURI(descriptor.getGeoYear()));
+		prefixes.put(basePrefix + "-dep", Configuration.departementURI(descriptor.getGeoYear(), ""));
+		prefixes.put(basePrefix + "-com", Configuration.communeURI(descriptor.getGeoYear(), ""));
+		prefixes.put(basePrefix + "-arm", Configuration.arrondissementMunicipalURI(descriptor.getGeoYear(), ""));
+		String tablePrefix = descriptor.getId().toLowerCase();
+		prefixes.put(tablePrefix + "-ds", descriptor.getBaseURI() + "dataSet/");
+		prefixes.put(tablePrefix + "-slice", descriptor.getBaseURI() + "slice/");
+		prefixes.put(tablePrefix + "-obs", descriptor.getBaseURI() + "observation/");
+		prefixes.put("dim", Configuration.componentURI("dimension", ""));
+		for (TableDescriptor.Dimension dimension : descriptor.getDimensions()) prefixes.put("cod-" + dimension.getCode().toLowerCase(), dimension.codeItemURI(""));
+
+		return prefixes;
+	}
+
+	/**
+	 * Writes the description of the data set: type, structure and labels.
+	 */
+	public void writeDataSet() {
+
+		stream.triple(Triple.create(dataSet, RDF.Nodes.type, DataCubeOntology.Nodes.DataSet));
+		stream.triple(Triple.create(dataSet, DataCubeOntology.Nodes.structure, NodeFactory.createURI(descriptor.dsdURI())));
+		for (Map.Entry<String, String> label : descriptor.getDataSetLabels().entrySet()) {
+			stream.triple(Triple.create(dataSet, RDFS.Nodes.label, NodeFactory.createLiteral(label.getValue(), label.getKey())));
+		}
+	}
+
+	/**
+	 * Writes an observation, preceded by its slice in the abbreviated form if the slice was not written yet.
+	 *
+	 * @param geoCode The code of the geographic area.
+	 * @param dimensionCodes The codes of the other dimensions, in the order of the descriptor.
+	 * @param measure The measure value.
+	 */
+	public void writeObservation(String geoCode, String[] dimensionCodes, float measure) {
+
+		if (abbreviated) {
+			if (!geoCode.equals(currentGeoCode)) {
+				currentGeoCode = geoCode;
+				writtenSlices.clear();
+			}
+			if (writtenSlices.add(descriptor.sliceURI(geoCode, dimensionCodes))) sliceTriples(geoCode, dimensionCodes, stream::triple);
+		}
+		observationTriples(geoCode, dimensionCodes, measure, stream::triple);
+		count++;
+	}
+
+	/**
+	 * Returns the triples describing an observation, in the form used by the writer (without the slice in the abbreviated form).
+	 */
+	public List<Triple> getObservationTriples(String geoCode, String[] dimensionCodes, float measure) {
+
+		List<Triple> triples = new ArrayList<Triple>();
+		observationTriples(geoCode, dimensionCodes, measure, triples::add);
+		return triples;
+	}
+
+	/**
+	 * Returns the triples describing the slice of an observation in the abbreviated form, except the link to the observation.
+	 */
+	public List<Triple> getSliceTriples(String geoCode, String[] dimensionCodes) {
+
+		List<Triple> triples = new ArrayList<Triple>();
+		sliceTriples(geoCode, dimensionCodes, triples::add);
+		return triples;
+	}
+
+	private void observationTriples(String geoCode, String[] dimensionCodes, float measure, Consumer<Triple> sink) {
+
+		Node observation = NodeFactory.createURI(descriptor.observationURI(geoCode, dimensionCodes));
+		int lastIndex = dimensionProperties.length - 1;
+		if (abbreviated) {
+			sink.accept(Triple.create(NodeFactory.createURI(descriptor.sliceURI(geoCode, dimensionCodes)), DataCubeOntology.Nodes.observation, observation));
+			sink.accept(Triple.create(observation, DataCubeOntology.Nodes.dataSet, dataSet));
+			sink.accept(Triple.create(observation, dimensionProperties[lastIndex], dimensionValue(lastIndex, dimensionCodes[lastIndex])));
+		} else {
+			sink.accept(Triple.create(observation, RDF.Nodes.type, DataCubeOntology.Nodes.Observation));
+			sink.accept(Triple.create(observation, DataCubeOntology.Nodes.dataSet, dataSet));
+			sink.accept(Triple.create(observation, geoDimensionProperty, cache.geoItem(descriptor.getGeoYear(), geoCode)));
+			for (int index = 0; index <= lastIndex; index++) sink.accept(Triple.create(observation, dimensionProperties[index], dimensionValue(index, dimensionCodes[index])));
+		}
+		sink.accept(Triple.create(observation, measureProperty, measureNode(measure)));
+	}
+
+	private void sliceTriples(String geoCode, String[] dimensionCodes, Consumer<Triple> sink) {
+
+		Node slice = NodeFactory.createURI(descriptor.sliceURI(geoCode, dimensionCodes));
+		sink.accept(Triple.create(dataSet, DataCubeOntology.Nodes.slice, slice));
+		sink.accept(Triple.create(slice, DataCubeOntology.Nodes.sliceStructure, sliceKey));
+		sink.accept(Triple.create(slice, geoDimensionProperty, cache.geoItem(descriptor.getGeoYear(), geoCode)));
+		for (int index = 0; index < dimensionProperties.length - 1; index++) sink.accept(Triple.create(slice, dimensionProperties[index], dimensionValue(index, dimensionCodes[index])));
+	}
+
+	private Node dimensionValue(int index, String itemCode) {
+		return cache.codeItem(descriptor.getDimensions().get(index).getCode(), itemCode);
+	}
+
+	/**
+	 * Returns the literal node of a measure value.
+	 */
+	public static Node measureNode(float measure) {
+		return NodeFactory.createLiteral(Float.toString(measure), XSDDatatype.XSDfloat);
+	}
+
+	/**
+	 * Returns the number of observations written.
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	/**
+	 * Finishes the stream and closes the file if the writer was created on a file.
+	 */
+	@Override
+	public void close() throws IOException {
+
+		if (output == null) return;
+		stream.finish();
+		output.close();
+	}
+}
@@ -0,0 +1,365 @@
+package eu.europa.ec.eurostat.los.pop5;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+/**
+ * The <code>TableDescriptor</code> class describes the layout of a census table workbook and the components of the corresponding data set.
+ *
+ * Descriptors are read from properties files, for example (see <code>src/main/resources/tables/pop5.properties</code> for the complete POP5 descriptor):
+ * <pre>
+ * id = POP5
+ * file = src/main/resources/data/BTX_TD_POP5_2015.xls
+ * referenceYear = 2015
+ * geoYear = 2017
+ * sheets = 0,1
+ * headerLines = 5-7
+ * firstDataLine = 11
+ * firstDataColumn = 2
+ * communeSheet = 0
+ * definitionsSheet = 2
+ * dimensions = SEXE,AGEQ65,TACTR
+ * dimension.SEXE.definitionLines = 8-10
+ * dimension.SEXE.schemeName = Sexes
+ * dimension.SEXE.schemePath = sexes
+ * dimension.SEXE.conceptPath = Sexe
+ * dimension.SEXE.sdmxConcept = sex
+ * ...
+ * measure.id = POP15PLUS
+ * measure.uri = http://id.insee.fr/meta/mesure/pop15Plus
+ * measure.name = Population de 15 ans ou plus
+ * measure.concept = http://purl.org/linked-data/sdmx/2009/concept#statPop
+ * baseURI = http://id.insee.fr/meta/demo/pop5/
+ * dataSet = 2015-depcomarm
+ * dataSet.label.fr = ...
+ * dsd = 2015-depcomarm
+ * dsd.identifier = DSD-POP5-DEPCOMARM
+ * dsd.label.fr = ...
+ * dsd.description.fr = ...
+ * sliceKey.label.fr = ...
+ * </pre>
+ * The geographic code is in the first column of the data rows, the geographic label in the second one. The dimensions are listed in
+ * the order of the header lines. Line and sheet indexes are 0-based, except the definition lines which are given as displayed in the workbook.
+ * If <code>communeSheet</code> is given, departemental observations are aggregated from the rows of this sheet, which contains the municipalities.
+ *
+ * A table has a single measure: every data cell of the data sheets is a value of it. Tables with several measures (several <code>measure.*</code>
+ * groups, or a <code>qb:measureType</code> dimension) are not supported; a workbook can only be split in several tables if each measure has its own sheets.
+ */
+public class TableDescriptor {
+
+	private String id;
+	private String fileName;
+	private int referenceYear;
+	private int geoYear;
+	private List<Integer> sheetIndexes = new ArrayList<Integer>();
+	private int firstHeaderLineIndex;
+	private int lastHeaderLineIndex;
+	private int firstDataLineIndex;
+	private int firstDataColumnIndex;
+	private Integer communeSheetIndex = null;
+	private int definitionsSheetIndex;
+	private List<Dimension> dimensions = new ArrayList<Dimension>();
+	private String measureId;
+	private String measureURI;
+	private String measureName;
+	private String measureConceptURI;
+	private String baseURI;
+	private String dataSetId;
+	private Map<String, String> dataSetLabels;
+	private String dsdId;
+	private String dsdIdentifier;
+	private Map<String, String> dsdLabels;
+	private Map<String, String> dsdDescriptions;
+	private Map<String, String> sliceKeyLabels;
+	private String outputDirectory;
+
+	/**
+	 * Reads a table descriptor from a properties file.
+	 *
+	 * @param descriptorFileName The name of the properties file.
+	 * @return The table descriptor.
+	 */
+	public static TableDescriptor load(String descriptorFileName) throws IOException {
+
+		Properties properties = new Properties();
+		try (Reader reader = new InputStreamReader(new FileInputStream(descriptorFileName), StandardCharsets.UTF_8)) {
+			properties.load(reader);
+		}
+
+		TableDescriptor descriptor = new TableDescriptor();
+		descriptor.id = getProperty(properties, "id");
+		descriptor.fileName = getProperty(properties, "file");
+		descriptor.referenceYear = Integer.parseInt(properties.getProperty("referenceYear", Integer.toString(Configuration.REFERENCE_YEAR)).trim());
+		descriptor.geoYear = Integer.parseInt(getProperty(properties, "geoYear"));
+		for (String sheetIndex : properties.getProperty("sheets", "0").split(",")) descriptor.sheetIndexes.add(Integer.parseInt(sheetIndex.trim()));
+		int[] headerLines = getRange(properties, "headerLines");
+		descriptor.firstHeaderLineIndex = headerLines[0];
+		descriptor.lastHeaderLineIndex = headerLines[1];
+		descriptor.firstDataLineIndex = Integer.parseInt(getProperty(properties, "firstDataLine"));
+		descriptor.firstDataColumnIndex = Integer.parseInt(properties.getProperty("firstDataColumn", "2").trim());
+		if (properties.containsKey("communeSheet")) descriptor.communeSheetIndex = Integer.parseInt(properties.getProperty("communeSheet").trim());
+		descriptor.definitionsSheetIndex = Integer.parseInt(getProperty(properties, "definitionsSheet"));
+		for (String dimensionCode : getProperty(properties, "dimensions").split(",")) descriptor.dimensions.add(new Dimension(properties, dimensionCode.trim()));
+		descriptor.measureId = getProperty(properties, "measure.id");
+		descriptor.measureURI = getProperty(properties, "measure.uri");
+		descriptor.measureName = getProperty(properties, "measure.name");
+		descriptor.measureConceptURI = getProperty(properties, "measure.concept");
+		descriptor.baseURI = getProperty(properties, "baseURI");
+		descriptor.dataSetId = getProperty(properties, "dataSet");
+		descriptor.dataSetLabels = getLanguageMap(properties, "dataSet.label.");
+		descriptor.dsdId = getProperty(properties, "dsd");
+		descriptor.dsdIdentifier = getProperty(properties, "dsd.identifier");
+		descriptor.dsdLabels = getLanguageMap(properties, "dsd.label.");
+		descriptor.dsdDescriptions = getLanguageMap(properties, "dsd.description.");
+		descriptor.sliceKeyLabels = getLanguageMap(properties, "sliceKey.label.");
+		descriptor.outputDirectory = properties.getProperty("outputDirectory", Configuration.DATA_DIRECTORY).trim();
+
+		if (descriptor.dimensions.size() != descriptor.lastHeaderLineIndex - descriptor.firstHeaderLineIndex + 1) {
+			throw new IllegalArgumentException("Descriptor " + descriptorFileName + ": the number of dimensions does not match the number of header lines");
+		}
+		return descriptor;
+	}
+
+	private static String getProperty(Properties properties, String key) {
+
+		String value = properties.getProperty(key);
+		if ((value == null) || value.trim().isEmpty()) throw new IllegalArgumentException("Missing table descriptor property: " + key);
+		return value.trim();
+	}
+
+	private static int[] getRange(Properties properties, String key) {
+
+		String[] bounds = getProperty(properties, key).split("-");
+		return new int[] {Integer.parseInt(bounds[0].trim()), Integer.parseInt(bounds[bounds.length - 1].trim())};
+	}
+
+	/** Returns the values of the properties whose key starts with a prefix, indexed by the rest of the key (the language tag) */
+	private static Map<String, String> getLanguageMap(Properties properties, String prefix) {
+
+		Map<String, String> values = new TreeMap<String, String>();
+		for (String key : properties.stringPropertyNames()) {
+			if (key.startsWith(prefix)) values.put(key.substring(prefix.length()), properties.getProperty(key).trim());
+		}
+		return Collections.unmodifiableMap(values);
+	}
+
+	/**
+	 * Description of a coded dimension of the table.
+	 */
+	public static class Dimension {
+
+		private String code;
+		private int firstDefinitionLineIndex;
+		private int lastDefinitionLineIndex;
+		private String schemeName;
+		private String schemePathName;
+		private String conceptPathName;
+		private String sdmxConcept;
+
+		private Dimension(Properties properties, String code) {
+
+			String prefix = "dimension." + code + ".";
+			this.code = code;
+			int[] definitionLines = getRange(properties, prefix + "definitionLines");
+			this.firstDefinitionLineIndex = definitionLines[0] - 1;
+			this.lastDefinitionLineIndex = definitionLines[1] - 1;
+			this.schemeName = getProperty(properties, prefix + "schemeName");
+			this.schemePathName = getProperty(properties, prefix + "schemePath");
+			this.conceptPathName = getProperty(properties, prefix + "conceptPath");
+			String sdmxConcept = properties.getProperty(prefix + "sdmxConcept");
+			this.sdmxConcept = ((sdmxConcept == null) || sdmxConcept.trim().isEmpty()) ? null : sdmxConcept.trim();
+		}
+
+		public String getCode() {
+			return code;
+		}
+
+		/** Index of the line of the definitions sheet containing the title of the code list (format is CODE : Concept) */
+		public int getFirstDefinitionLineIndex() {
+			return firstDefinitionLineIndex;
+		}
+
+		/** Index of the line of the definitions sheet containing the last code of the code list */
+		public int getLastDefinitionLineIndex() {
+			return lastDefinitionLineIndex;
+		}
+
+		public String getSchemeName() {
+			return schemeName;
+		}
+
+		/** The SDMX concept and dimension extended by this dimension (for example <code>sex</code>), <code>null</code> if there is none */
+		public String getSDMXConcept() {
+			return sdmxConcept;
+		}
+
+		public String propertyURI() {
+			return Configuration.componentURI("dimension", code);
+		}
+
+		public String conceptSchemeURI() {
+			return Configuration.conceptSchemeURI(code, schemePathName);
+		}
+
+		public String codeConceptURI() {
+			return Configuration.codeConceptURI(code, conceptPathName);
+		}
+
+		public String conceptURI() {
+			return Configuration.conceptURI(conceptPathName);
+		}
+
+		public String codeItemURI(String itemCode) {
+			return Configuration.codeItemURI(code, itemCode);
+		}
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public String getFileName() {
+		return fileName;
+	}
+
+	public int getReferenceYear() {
+		return referenceYear;
+	}
+
+	public int getGeoYear() {
+		return geoYear;
+	}
+
+	public List<Integer> getSheetIndexes() {
+		return sheetIndexes;
+	}
+
+	public int getFirstHeaderLineIndex() {
+		return firstHeaderLineIndex;
+	}
+
+	public int getLastHeaderLineIndex() {
+		return lastHeaderLineIndex;
+	}
+
+	public int getFirstDataLineIndex() {
+		return firstDataLineIndex;
+	}
+
+	public int getFirstDataColumnIndex() {
+		return firstDataColumnIndex;
+	}
+
+	public Integer getCommuneSheetIndex() {
+		return communeSheetIndex;
+	}
+
+	public int getDefinitionsSheetIndex() {
+		return definitionsSheetIndex;
+	}
+
+	public List<Dimension> getDimensions() {
+		return dimensions;
+	}
+
+	public String getMeasureId() {
+		return measureId;
+	}
+
+	public String getMeasureURI() {
+		return measureURI;
+	}
+
+	public String getMeasureName() {
+		return measureName;
+	}
+
+	public String getMeasureConceptURI() {
+		return measureConceptURI;
+	}
+
+	public String getBaseURI() {
+		return baseURI;
+	}
+
+	public Map<String, String> getDataSetLabels() {
+		return dataSetLabels;
+	}
+
+	public String getDSDIdentifier() {
+		return dsdIdentifier;
+	}
+
+	public Map<String, String> getDSDLabels() {
+		return dsdLabels;
+	}
+
+	public Map<String, String> getDSDDescriptions() {
+		return dsdDescriptions;
+	}
+
+	public Map<String, String> getSliceKeyLabels() {
+		return sliceKeyLabels;
+	}
+
+	/** Names of the files produced for the table */
+	public String getDataSetFileName() {
+		return outputDirectory + "ds-" + id.toLowerCase() + ".ttl";
+	}
+
+	public String getDepartementalDataSetFileName() {
+		return outputDirectory + "ds-" + id.toLowerCase() + "-dep.ttl";
+	}
+
+	public String getDSDFileName() {
+		return outputDirectory + "dsd-" + id.toLowerCase() + ".ttl";
+	}
+
+	public String getCodeListFileName(Dimension dimension) {
+		return outputDirectory + "cs-" + dimension.getCode().toLowerCase() + ".ttl";
+	}
+
+	public String getGeoCodeListFileName() {
+		return outputDirectory + "cs-cog" + geoYear + ".ttl";
+	}
+
+	/** URIs of the data set and of its components */
+	public String dataSetURI() {
+		return baseURI + "dataSet/" + dataSetId;
+	}
+
+	public String dsdURI() {
+		return baseURI + "dsd/" + dsdId;
+	}
+
+	public String sliceKeyURI() {
+		return baseURI + "sliceKey/" + dsdId;
+	}
+
+	/** The slice contains the observations which differ only by the value of the last dimension */
+	public String sliceURI(String geoCode, String[] dimensionValues) {
+		return baseURI + "slice/" + referenceYear + "-" + geoCode + "-" + String.join("-", Arrays.copyOf(dimensionValues, dimensionValues.length - 1));
+	}
+
+	public String observationURI(String geoCode, String[] dimensionValues) {
+		return baseURI + "observation/" + referenceYear + "-" + geoCode + "-" + String.join("-", dimensionValues);
+	}
+
+	public String geoDimensionURI() {
+		return Configuration.geoDimensionURI(geoYear);
+	}
+
+	public String cogItemURI(String geoCode) {
+		return Configuration.cogItemURI(geoYear, geoCode);
+	}
+}
@@ -0,0 +1,71 @@
+package eu.europa.ec.eurostat.los.pop5;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * The <code>TableHeader</code> class holds the interpretative header of a census table: each header line gives the values of one
+ * dimension for the data columns.
+ *
+ * The header is built cell by cell by the {@link TableReader}.
+ */
+public class TableHeader {
+
+	private TableDescriptor descriptor;
+	private int headerSize;
+	/** Dimension codes for each data column */
+	private SortedMap<Integer, String[]> columnCodes = new TreeMap<Integer, String[]>();
+
+	public TableHeader(TableDescriptor descriptor) {
+		this.descriptor = descriptor;
+		this.headerSize = descriptor.getDimensions().size();
+	}
+
+	/**
+	 * Adds a cell of the workbook to the header, ignoring the cells which are outside the header lines.
+	 *
+	 * @param lineIndex The index of the line of the cell.
+	 * @param columnIndex The index of the column of the cell.
+	 * @param value The value of the cell.
+	 */
+	public void addCell(int lineIndex, int columnIndex, String value) {
+
+		if ((lineIndex < descriptor.getFirstHeaderLineIndex()) || (lineIndex > descriptor.getLastHeaderLineIndex())) return;
+		if ((value == null) || value.trim().isEmpty()) return;
+		int index = lineIndex - descriptor.getFirstHeaderLineIndex();
+		String conceptCode = descriptor.getDimensions().get(index).getCode();
+		// The concept code is normally in the column preceding the data, check it when present
+		if (columnIndex == descriptor.getFirstDataColumnIndex() - 1) {
+			if (!value.trim().equalsIgnoreCase(conceptCode)) throw new IllegalStateException("Table " + descriptor.getId() + ": header line " + lineIndex + " is for " + value.trim() + ", not " + conceptCode);
+			return;
+		}
+		if (columnIndex < descriptor.getFirstDataColumnIndex()) return;
+		columnCodes.computeIfAbsent(columnIndex, column -> new String[headerSize])[index] = value.trim();
+	}
+
+	/**
+	 * Checks that the values of all dimensions are known for each data column.
+	 */
+	public void check() {
+
+		if (columnCodes.isEmpty()) throw new IllegalStateException("Table " + descriptor.getId() + ": no header found");
+		for (Map.Entry<Integer, String[]> entry : columnCodes.entrySet()) {
+			for (String code : entry.getValue()) {
+				if (code == null) throw new IllegalStateException("Table " + descriptor.getId() + ": incomplete header for column " + entry.getKey());
+			}
+		}
+	}
+
+	/**
+	 * Returns the dimension codes of a column (in the order of the dimensions of the descriptor), or <code>null</code> if it is not a data column.
+	 */
+	public String[] getCodes(int columnIndex) {
+		return columnCodes.get(columnIndex);
+	}
+
+	public Set<Integer> getColumnIndexes() {
+		return columnCodes.keySet();
+	}
+}
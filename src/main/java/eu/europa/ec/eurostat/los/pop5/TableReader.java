@@ -0,0 +1,200 @@
+package eu.europa.ec.eurostat.los.pop5;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+
+import org.apache.poi.hssf.eventusermodel.HSSFEventFactory;
+import org.apache.poi.hssf.eventusermodel.HSSFListener;
+import org.apache.poi.hssf.eventusermodel.HSSFRequest;
+import org.apache.poi.hssf.record.BOFRecord;
+import org.apache.poi.hssf.record.FormulaRecord;
+import org.apache.poi.hssf.record.LabelRecord;
+import org.apache.poi.hssf.record.LabelSSTRecord;
+import org.apache.poi.hssf.record.MulRKRecord;
+import org.apache.poi.hssf.record.NumberRecord;
+import org.apache.poi.hssf.record.RKRecord;
+import org.apache.poi.hssf.record.Record;
+import org.apache.poi.hssf.record.SSTRecord;
+import org.apache.poi.poifs.filesystem.POIFSFileSystem;
+import org.apache.poi.ss.usermodel.CellType;
+
+/**
+ * The <code>TableReader</code> class reads the header and the data rows of a census table workbook with the POI event API.
+ *
+ * The workbook records are processed as they are read, so only the current row is kept in memory, whatever the size of the table.
+ * The header is read from the first data sheet of the descriptor and is complete when the first data row is delivered. Data rows are the
+ * rows of the data sheets which have a geographic code in their first column and at least one numeric value in the data columns: blank lines
+ * and footnotes are skipped.
+ *
+ * Sheets are numbered in the order of the worksheets in the file (chart sheets are not counted).
+ */
+public class TableReader implements HSSFListener {
+
+	/**
+	 * Receives the data rows of a table.
+	 */
+	public interface RowHandler {
+		/**
+		 * Processes a data row. The arrays are reused for the next row.
+		 *
+		 * @param sheetIndex The index of the sheet.
+		 * @param geoCode The geographic code (first column).
+		 * @param columnIndexes The indexes of the data columns having a numeric value.
+		 * @param values The corresponding values.
+		 * @param size The number of values.
+		 */
+		void handleRow(int sheetIndex, String geoCode, int[] columnIndexes, double[] values, int size) throws IOException;
+	}
+
+	private TableDescriptor descriptor;
+	private TableHeader header;
+	private RowHandler handler = null;
+	private SSTRecord sst = null;
+	private boolean headerChecked = false;
+
+	private int sheetIndex = -1;
+	private boolean dataSheet = false;
+	private int rowIndex = -1;
+	private String geoCode = null;
+	private int[] columnIndexes = new int[64];
+	private double[] values = new double[64];
+	private int size = 0;
+
+	public TableReader(TableDescriptor descriptor) {
+		this.descriptor = descriptor;
+		this.header = new TableHeader(descriptor);
+	}
+
+	/**
+	 * Reads a workbook and sends its data rows to a handler.
+	 *
+	 * @param fileName The name of the workbook file.
+	 * @param handler The handler of the data rows.
+	 * @return The header of the table.
+	 */
+	public TableHeader read(String fileName, RowHandler handler) throws IOException {
+
+		this.handler = handler;
+		try (InputStream input = new FileInputStream(fileName); POIFSFileSystem fileSystem = new POIFSFileSystem(input)) {
+			HSSFRequest request = new HSSFRequest();
+			request.addListenerForAllRecords(this);
+			new HSSFEventFactory().processWorkbookEvents(request, fileSystem);
+			endRow();
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+		checkHeader();
+
+		return header;
+	}
+
+	/**
+	 * Returns the header of the table, complete once the first data row has been delivered.
+	 */
+	public TableHeader getHeader() {
+		return header;
+	}
+
+	@Override
+	public void processRecord(Record record) {
+
+		switch (record.getSid()) {
+		case BOFRecord.sid:
+			if (((BOFRecord) record).getType() == BOFRecord.TYPE_WORKSHEET) {
+				endRow();
+				sheetIndex++;
+				dataSheet = descriptor.getSheetIndexes().contains(sheetIndex);
+				rowIndex = -1;
+			}
+			break;
+		case SSTRecord.sid:
+			sst = (SSTRecord) record;
+			break;
+		case LabelSSTRecord.sid:
+			LabelSSTRecord label = (LabelSSTRecord) record;
+			textCell(label.getRow(), label.getColumn(), sst.getString(label.getSSTIndex()).getString());
+			break;
+		case LabelRecord.sid:
+			LabelRecord oldLabel = (LabelRecord) record;
+			textCell(oldLabel.getRow(), oldLabel.getColumn(), oldLabel.getValue());
+			break;
+		case NumberRecord.sid:
+			NumberRecord number = (NumberRecord) record;
+			numericCell(number.getRow(), number.getColumn(), number.getValue());
+			break;
+		case RKRecord.sid:
+			RKRecord rk = (RKRecord) record;
+			numericCell(rk.getRow(), rk.getColumn(), rk.getRKNumber());
+			break;
+		case MulRKRecord.sid:
+			MulRKRecord mulRK = (MulRKRecord) record;
+			for (int index = 0; index < mulRK.getNumColumns(); index++) numericCell(mulRK.getRow(), mulRK.getFirstColumn() + index, mulRK.getRKNumberAt(index));
+			break;
+		case FormulaRecord.sid:
+			FormulaRecord formula = (FormulaRecord) record;
+			if (CellType.forInt(formula.getCachedResultType()) == CellType.NUMERIC) numericCell(formula.getRow(), formula.getColumn(), formula.getValue());
+			break;
+		default:
+			break;
+		}
+	}
+
+	private void textCell(int row, int column, String value) {
+
+		if (!dataSheet) return;
+		if (sheetIndex == descriptor.getSheetIndexes().get(0)) header.addCell(row, column, value);
+		if (row < descriptor.getFirstDataLineIndex()) return;
+		startRow(row);
+		if ((column == 0) && !value.trim().isEmpty()) geoCode = value.trim();
+	}
+
+	private void numericCell(int row, int column, double value) {
+
+		if (!dataSheet) return;
+		// Numeric values are formatted like the cells of the POI user model
+		if (row < descriptor.getFirstDataLineIndex()) {
+			if (sheetIndex == descriptor.getSheetIndexes().get(0)) header.addCell(row, column, String.valueOf(value));
+			return;
+		}
+		startRow(row);
+		if (column == 0) geoCode = String.valueOf(value);
+		if (column < descriptor.getFirstDataColumnIndex()) return;
+		if (size == columnIndexes.length) {
+			columnIndexes = Arrays.copyOf(columnIndexes, 2 * size);
+			values = Arrays.copyOf(values, 2 * size);
+		}
+		columnIndexes[size] = column;
+		values[size++] = value;
+	}
+
+	private void startRow(int row) {
+
+		if (row == rowIndex) return;
+		endRow();
+		rowIndex = row;
+	}
+
+	private void endRow() {
+
+		if ((geoCode != null) && (size > 0)) {
+			checkHeader();
+			try {
+				handler.handleRow(sheetIndex, geoCode, columnIndexes, values, size);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+		geoCode = null;
+		size = 0;
+	}
+
+	private void checkHeader() {
+
+		if (headerChecked) return;
+		header.check();
+		headerChecked = true;
+	}
+}
@@ -0,0 +1,298 @@
+package eu.europa.ec.eurostat.los.utils;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.Property;
+import org.apache.jena.rdf.model.RDFNode;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.rdf.model.Statement;
+import org.apache.jena.riot.RDFDataMgr;
+import org.apache.jena.riot.RDFFormat;
+import org.apache.jena.riot.system.StreamRDF;
+import org.apache.jena.riot.system.StreamRDFWriter;
+import org.apache.jena.sparql.core.Quad;
+import org.apache.jena.vocabulary.RDF;
+import org.apache.jena.vocabulary.RDFS;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Implementation of the <a href="https://www.w3.org/TR/vocab-data-cube/#normalize-algorithm">Data Cube normalization algorithm</a>.
+ *
+ * The rules of the algorithm are applied directly on the statements instead of running the SPARQL updates of the specification.
+ * Data sets are normalized in a streaming pass (see {@link #getStream(Model, StreamRDF)}), which only keeps the data structure
+ * definitions in memory. The in-memory normalization of a model ({@link #normalize(Model)}) is meant for small models, like the data
+ * structure definitions themselves.
+ */
+public class DataCubeNormalizer {
+
+	private static Logger logger = LogManager.getLogger(DataCubeNormalizer.class);
+
+	/** The SDMX reference area dimension, whose sub-properties give the geographic area of the slices */
+	private static final Node REF_AREA = NodeFactory.createURI("http://purl.org/linked-data/sdmx/2009/dimension#refArea");
+
+	/**
+	 * Normalizes Turtle data set files and writes the result, preceded by the normalized data structure definitions, in a Turtle file.
+	 *
+	 * @param args The name of the DSD file, the names of the data set files, and the name of the output file.
+	 */
+	public static void main(String[] args) throws Exception {
+
+		if (args.length < 3) {
+			logger.error("Usage: DataCubeNormalizer <DSD file> <data set file>... <output file>");
+			return;
+		}
+		Model structures = normalize(RDFDataMgr.loadModel(args[0]));
+		try (OutputStream output = new BufferedOutputStream(new FileOutputStream(args[args.length - 1]), 1 << 16)) {
+			StreamRDF writer = StreamRDFWriter.getWriterStream(output, RDFFormat.TURTLE_BLOCKS);
+			writer.start();
+			for (Map.Entry<String, String> prefix : structures.getNsPrefixMap().entrySet()) writer.prefix(prefix.getKey(), prefix.getValue());
+			structures.getGraph().find().forEachRemaining(writer::triple);
+			StreamRDF normalizer = getStream(structures, writer);
+			for (int index = 1; index < args.length - 1; index++) {
+				logger.info("Normalizing " + args[index]);
+				RDFDataMgr.parse(normalizer, args[index]);
+			}
+			writer.finish();
+		}
+	}
+
+	/**
+	 * Returns a stream which normalizes the data sets sent to it and writes the result to another stream.
+	 *
+	 * The data set description (and its <code>qb:structure</code> in particular) must come before the observations, and each slice must
+	 * be declared with its dimension values before its observations. Only the slices of the current geographic area are kept in memory
+	 * (the area is given by the dimension of the slice which is a sub-property of <code>sdmx-dimension:refArea</code>), so the
+	 * observations of an area must be consecutive, as written by <code>ObservationWriter</code>. If the structure has no such dimension,
+	 * all the slices are kept. Inferred triples can be written more than once, which does not change the resulting graph.
+	 *
+	 * @param structures The normalized model containing the data structure definitions of the data sets.
+	 * @param output The stream receiving the normalized data sets, which is not started nor finished by the returned stream.
+	 * @return The normalizing stream.
+	 */
+	public static StreamRDF getStream(Model structures, StreamRDF output) {
+		return new NormalizingStream(structures, output);
+	}
+
+	/**
+	 * Expands a model in abbreviated form into the normalized form (the model is modified in place).
+	 * The whole model is held in memory: large data sets must be normalized with {@link #getStream(Model, StreamRDF)}.
+	 *
+	 * @param model The Jena model to normalize.
+	 * @return The model, for chaining.
+	 */
+	public static Model normalize(Model model) {
+
+		long initialSize = model.size();
+		List<Statement> inferred = new ArrayList<Statement>();
+
+		// Phase 1: type and property closure
+		model.listStatements(null, DataCubeOntology.dataSet, (RDFNode) null).forEachRemaining(statement -> {
+			inferred.add(model.createStatement(statement.getSubject(), RDF.type, DataCubeOntology.Observation));
+		});
+		model.listStatements(null, DataCubeOntology.slice, (RDFNode) null).forEachRemaining(statement -> {
+			inferred.add(model.createStatement(statement.getObject().asResource(), RDF.type, DataCubeOntology.Slice));
+		});
+		model.listStatements(null, DataCubeOntology.observation, (RDFNode) null).forEachRemaining(statement -> {
+			inferred.add(model.createStatement(statement.getObject().asResource(), RDF.type, DataCubeOntology.Observation));
+		});
+		addComponentClosure(model, DataCubeOntology.dimension, DataCubeOntology.DimensionProperty, inferred);
+		addComponentClosure(model, DataCubeOntology.measure, DataCubeOntology.MeasureProperty, inferred);
+		addComponentClosure(model, DataCubeOntology.attribute, DataCubeOntology.AttributeProperty, inferred);
+		model.add(inferred);
+		inferred.clear();
+
+		// Phase 2: push down attachment levels
+		model.listSubjectsWithProperty(DataCubeOntology.structure).forEachRemaining(dataSet -> {
+			Set<Property> dataSetComponents = new HashSet<Property>();
+			Set<Property> sliceComponents = new HashSet<Property>();
+			model.listObjectsOfProperty(dataSet, DataCubeOntology.structure).forEachRemaining(dsd -> {
+				if (!dsd.isResource()) return;
+				model.listObjectsOfProperty(dsd.asResource(), DataCubeOntology.component).forEachRemaining(specification -> {
+					if (!specification.isResource()) return;
+					Resource spec = specification.asResource();
+					if (!spec.hasProperty(DataCubeOntology.componentProperty)) return;
+					Property component = model.createProperty(spec.getPropertyResourceValue(DataCubeOntology.componentProperty).getURI());
+					// Dimension values can always be given on slices
+					if (spec.hasProperty(DataCubeOntology.componentAttachment, DataCubeOntology.DataSet)) dataSetComponents.add(component);
+					if (spec.hasProperty(DataCubeOntology.componentAttachment, DataCubeOntology.Slice) || component.hasProperty(RDF.type, DataCubeOntology.DimensionProperty)) sliceComponents.add(component);
+				});
+			});
+			List<Resource> observations = model.listSubjectsWithProperty(DataCubeOntology.dataSet, dataSet).toList();
+			for (Property component : dataSetComponents) {
+				for (RDFNode value : model.listObjectsOfProperty(dataSet, component).toList()) {
+					for (Resource observation : observations) inferred.add(model.createStatement(observation, component, value));
+				}
+			}
+			model.listObjectsOfProperty(dataSet, DataCubeOntology.slice).forEachRemaining(sliceNode -> {
+				Resource slice = sliceNode.asResource();
+				List<RDFNode> sliceObservations = model.listObjectsOfProperty(slice, DataCubeOntology.observation).toList();
+				for (Property component : sliceComponents) {
+					for (RDFNode value : model.listObjectsOfProperty(slice, component).toList()) {
+						for (RDFNode observation : sliceObservations) inferred.add(model.createStatement(observation.asResource(), component, value));
+					}
+				}
+			});
+		});
+		model.add(inferred);
+		logger.info("Model normalized, number of statements added: " + (model.size() - initialSize));
+
+		return model;
+	}
+
+	/**
+	 * Adds the <code>qb:componentProperty</code> and type statements inferred from a component specification property.
+	 */
+	private static void addComponentClosure(Model model, Property specificationProperty, Resource componentType, List<Statement> inferred) {
+
+		model.listStatements(null, specificationProperty, (RDFNode) null).forEachRemaining(statement -> {
+			inferred.add(model.createStatement(statement.getSubject(), DataCubeOntology.componentProperty, statement.getObject()));
+			inferred.add(model.createStatement(statement.getObject().asResource(), RDF.type, componentType));
+		});
+	}
+
+	/**
+	 * The components of the data structure definition of a data set, and the values attached to the data set.
+	 */
+	private static class DataSetStructure {
+
+		Set<Node> dataSetComponents = new HashSet<Node>();
+		Set<Node> sliceComponents = new HashSet<Node>();
+		Node areaDimension = null;
+		List<Node[]> dataSetValues = new ArrayList<Node[]>();
+
+		DataSetStructure(Model structures, Node dsd) {
+
+			Resource dsdResource = structures.wrapAsResource(dsd);
+			structures.listObjectsOfProperty(dsdResource, DataCubeOntology.component).forEachRemaining(specification -> {
+				if (!specification.isResource()) return;
+				Resource spec = specification.asResource();
+				if (!spec.hasProperty(DataCubeOntology.componentProperty)) return;
+				Resource component = spec.getPropertyResourceValue(DataCubeOntology.componentProperty);
+				boolean dimension = component.hasProperty(RDF.type, DataCubeOntology.DimensionProperty);
+				if (spec.hasProperty(DataCubeOntology.componentAttachment, DataCubeOntology.DataSet)) dataSetComponents.add(component.asNode());
+				if (spec.hasProperty(DataCubeOntology.componentAttachment, DataCubeOntology.Slice) || dimension) sliceComponents.add(component.asNode());
+				if (dimension && component.hasProperty(RDFS.subPropertyOf, structures.wrapAsResource(REF_AREA))) areaDimension = component.asNode();
+			});
+		}
+	}
+
+	/**
+	 * The slices of a data set: the structure of the data set and the component values given on the slice.
+	 */
+	private static class SliceBindings {
+
+		DataSetStructure structure;
+		List<Node[]> values = new ArrayList<Node[]>();
+
+		SliceBindings(DataSetStructure structure) {
+			this.structure = structure;
+		}
+	}
+
+	/**
+	 * Applies the normalization rules triple by triple.
+	 */
+	private static class NormalizingStream implements StreamRDF {
+
+		private Model structures;
+		private StreamRDF output;
+		private Map<Node, DataSetStructure> dataSets = new HashMap<Node, DataSetStructure>();
+		private Map<Node, SliceBindings> slices = new LinkedHashMap<Node, SliceBindings>();
+		private Node currentArea = null;
+
+		NormalizingStream(Model structures, StreamRDF output) {
+
+			this.structures = structures;
+			this.output = output;
+		}
+
+		@Override
+		public void start() {} // The output stream is managed by the caller
+
+		@Override
+		public void triple(Triple triple) {
+
+			output.triple(triple);
+			Node subject = triple.getSubject();
+			Node predicate = triple.getPredicate();
+			Node object = triple.getObject();
+
+			// Phase 1: type and property closure
+			if (predicate.equals(DataCubeOntology.Nodes.dataSet)) infer(subject, RDF.Nodes.type, DataCubeOntology.Nodes.Observation);
+			else if (predicate.equals(DataCubeOntology.Nodes.slice)) infer(object, RDF.Nodes.type, DataCubeOntology.Nodes.Slice);
+			else if (predicate.equals(DataCubeOntology.Nodes.observation)) infer(object, RDF.Nodes.type, DataCubeOntology.Nodes.Observation);
+			else if (predicate.equals(DataCubeOntology.Nodes.dimension)) addComponentClosure(subject, object, DataCubeOntology.Nodes.DimensionProperty);
+			else if (predicate.equals(DataCubeOntology.Nodes.measure)) addComponentClosure(subject, object, DataCubeOntology.Nodes.MeasureProperty);
+			else if (predicate.equals(DataCubeOntology.Nodes.attribute)) addComponentClosure(subject, object, DataCubeOntology.Nodes.AttributeProperty);
+
+			// Phase 2: push down attachment levels
+			if (predicate.equals(DataCubeOntology.Nodes.structure)) {
+				dataSets.put(subject, new DataSetStructure(structures, object));
+			} else if (predicate.equals(DataCubeOntology.Nodes.dataSet)) {
+				DataSetStructure structure = dataSets.get(object);
+				if (structure != null) for (Node[] value : structure.dataSetValues) infer(subject, value[0], value[1]);
+			} else if (predicate.equals(DataCubeOntology.Nodes.slice)) {
+				DataSetStructure structure = dataSets.get(subject);
+				if (structure != null) slices.put(object, new SliceBindings(structure));
+			} else if (predicate.equals(DataCubeOntology.Nodes.observation)) {
+				SliceBindings bindings = slices.get(subject);
+				if (bindings == null) throw new IllegalStateException("Observation " + object + " of slice " + subject + " found outside of the slices of the current area " + currentArea);
+				for (Node[] value : bindings.values) infer(object, value[0], value[1]);
+			} else if (dataSets.containsKey(subject)) {
+				DataSetStructure structure = dataSets.get(subject);
+				if (structure.dataSetComponents.contains(predicate)) structure.dataSetValues.add(new Node[] {predicate, object});
+			} else if (slices.containsKey(subject)) {
+				SliceBindings bindings = slices.get(subject);
+				if (!bindings.structure.sliceComponents.contains(predicate)) return;
+				bindings.values.add(new Node[] {predicate, object});
+				if (predicate.equals(bindings.structure.areaDimension) && !object.equals(currentArea)) {
+					// New area: the slices of the previous one are dropped
+					currentArea = object;
+					slices.keySet().removeIf(slice -> !slice.equals(subject));
+				}
+			}
+		}
+
+		private void addComponentClosure(Node specification, Node component, Node componentType) {
+
+			infer(specification, DataCubeOntology.Nodes.componentProperty, component);
+			infer(component, RDF.Nodes.type, componentType);
+		}
+
+		private void infer(Node subject, Node predicate, Node object) {
+			output.triple(Triple.create(subject, predicate, object));
+		}
+
+		@Override
+		public void quad(Quad quad) {
+			triple(quad.asTriple());
+		}
+
+		@Override
+		public void base(String base) {
+			output.base(base);
+		}
+
+		@Override
+		public void prefix(String prefix, String iri) {
+			output.prefix(prefix, iri);
+		}
+
+		@Override
+		public void finish() {} // The output stream is managed by the caller
+	}
+}
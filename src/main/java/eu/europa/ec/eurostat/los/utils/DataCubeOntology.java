@@ -1,22 +1,19 @@
 package eu.europa.ec.eurostat.los.utils;
 
-import org.apache.jena.ontology.DatatypeProperty;
-import org.apache.jena.ontology.ObjectProperty;
-import org.apache.jena.ontology.OntClass;
-import org.apache.jena.ontology.OntModel;
-import org.apache.jena.ontology.OntModelSpec;
-import org.apache.jena.rdf.model.ModelFactory ;
-import org.apache.jena.rdf.model.Resource ;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.rdf.model.Property;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.rdf.model.ResourceFactory;
 
 /**
  * Vocabulary definition for the 
  * <a href="https://www.w3.org/TR/vocab-data-cube/">W3C Data Cube Recommendation</a>.
+ * 
+ * The terms are plain Jena resources and properties (no ontology model is created), and the corresponding
+ * graph nodes are available in the {@link Nodes} holder class, which is only initialized on first access.
  */
 public class DataCubeOntology {
-	/**
-	 * The RDF model that holds the Data Cube entities
-	 */
-	private static final OntModel model = ModelFactory.createOntologyModel(OntModelSpec.OWL_MEM);
 	/**
 	 * The namespace of the Data Cube vocabulary as a string
 	 */
@@ -28,55 +25,96 @@ public class DataCubeOntology {
 	public static String getURI() {
 		return uri;
 	}
+
+	private static Resource resource(String localName) {
+		return ResourceFactory.createResource(uri + localName);
+	}
+
+	private static Property property(String localName) {
+		return ResourceFactory.createProperty(uri, localName);
+	}
+
 	/**
 	 * The namespace of the Data Cube vocabulary
 	 */
-	public static final Resource NAMESPACE = model.createResource(uri);
+	public static final Resource NAMESPACE = ResourceFactory.createResource(uri);
 
 	/* ##########################################################
 	 * Data Cube Classes
 	   ########################################################## */
-	public static final OntClass Attachable = model.createClass(uri + "Attachable");
-	public static final OntClass AttributeProperty = model.createClass(uri + "AttributeProperty");
-	public static final OntClass CodedProperty = model.createClass(uri + "CodedProperty");
-	public static final OntClass ComponentProperty = model.createClass(uri + "ComponentProperty");
-	public static final OntClass ComponentSet = model.createClass(uri + "ComponentSet");
-	public static final OntClass ComponentSpecification = model.createClass(uri + "ComponentSpecification");
-	public static final OntClass DataSet = model.createClass(uri + "DataSet");
-	public static final OntClass DataStructureDefinition = model.createClass(uri + "DataStructureDefinition");
-	public static final OntClass DimensionProperty = model.createClass(uri + "DimensionProperty");
-	public static final OntClass HierarchicalCodeList = model.createClass(uri + "HierarchicalCodeList");
-	public static final OntClass MeasureProperty = model.createClass(uri + "MeasureProperty");
-	public static final OntClass Observation = model.createClass(uri + "Observation");
-	public static final OntClass Slice = model.createClass(uri + "Slice");
-	public static final OntClass ObservationGroup = model.createClass(uri + "ObservationGroup");
-	public static final OntClass SliceKey = model.createClass(uri + "SliceKey");
+	public static final Resource Attachable = resource("Attachable");
+	public static final Resource AttributeProperty = resource("AttributeProperty");
+	public static final Resource CodedProperty = resource("CodedProperty");
+	public static final Resource ComponentProperty = resource("ComponentProperty");
+	public static final Resource ComponentSet = resource("ComponentSet");
+	public static final Resource ComponentSpecification = resource("ComponentSpecification");
+	public static final Resource DataSet = resource("DataSet");
+	public static final Resource DataStructureDefinition = resource("DataStructureDefinition");
+	public static final Resource DimensionProperty = resource("DimensionProperty");
+	public static final Resource HierarchicalCodeList = resource("HierarchicalCodeList");
+	public static final Resource MeasureProperty = resource("MeasureProperty");
+	public static final Resource Observation = resource("Observation");
+	public static final Resource Slice = resource("Slice");
+	public static final Resource ObservationGroup = resource("ObservationGroup");
+	public static final Resource SliceKey = resource("SliceKey");
 
 	/* ##########################################################
 	 * Data Cube Properties
 	   ########################################################## */
 
 	// Data properties
-	public static final DatatypeProperty componentRequired = model.createDatatypeProperty(uri + "componentRequired");
-	public static final DatatypeProperty order = model.createDatatypeProperty(uri + "order");
+	public static final Property componentRequired = property("componentRequired");
+	public static final Property order = property("order");
 	// Object properties
-	public static final ObjectProperty attribute = model.createObjectProperty(uri + "attribute");
-	public static final ObjectProperty codeList = model.createObjectProperty(uri + "codeList");
-	public static final ObjectProperty component = model.createObjectProperty(uri + "component");
-	public static final ObjectProperty componentAttachment = model.createObjectProperty(uri + "componentAttachment");
-	public static final ObjectProperty componentProperty = model.createObjectProperty(uri + "componentProperty");
-	public static final ObjectProperty concept = model.createObjectProperty(uri + "concept");
-	public static final ObjectProperty dataSet = model.createObjectProperty(uri + "dataSet");
-	public static final ObjectProperty dimension = model.createObjectProperty(uri + "dimension");
-	public static final ObjectProperty hierarchyRoot = model.createObjectProperty(uri + "hierarchyRoot");
-	public static final ObjectProperty measure = model.createObjectProperty(uri + "measure");
-	public static final ObjectProperty measureDimension = model.createObjectProperty(uri + "measureDimension");
-	public static final ObjectProperty measureType = model.createObjectProperty(uri + "measureType");
-	public static final ObjectProperty observation = model.createObjectProperty(uri + "observation");
-	public static final ObjectProperty observationGroup = model.createObjectProperty(uri + "observationGroup");
-	public static final ObjectProperty parentChildProperty = model.createObjectProperty(uri + "parentChildProperty");
-	public static final ObjectProperty slice = model.createObjectProperty(uri + "slice");
-	public static final ObjectProperty sliceKey = model.createObjectProperty(uri + "sliceKey");
-	public static final ObjectProperty sliceStructure = model.createObjectProperty(uri + "sliceStructure");
-	public static final ObjectProperty structure = model.createObjectProperty(uri + "structure");
+	public static final Property attribute = property("attribute");
+	public static final Property codeList = property("codeList");
+	public static final Property component = property("component");
+	public static final Property componentAttachment = property("componentAttachment");
+	public static final Property componentProperty = property("componentProperty");
+	public static final Property concept = property("concept");
+	public static final Property dataSet = property("dataSet");
+	public static final Property dimension = property("dimension");
+	public static final Property hierarchyRoot = property("hierarchyRoot");
+	public static final Property measure = property("measure");
+	public static final Property measureDimension = property("measureDimension");
+	public static final Property measureType = property("measureType");
+	public static final Property observation = property("observation");
+	public static final Property observationGroup = property("observationGroup");
+	public static final Property parentChildProperty = property("parentChildProperty");
+	public static final Property slice = property("slice");
+	public static final Property sliceKey = property("sliceKey");
+	public static final Property sliceStructure = property("sliceStructure");
+	public static final Property structure = property("structure");
+
+	/**
+	 * Data Cube terms as graph nodes, for use with the Graph and Triple level APIs.
+	 * This holder class is only loaded when one of its constants is first used.
+	 */
+	public static final class Nodes {
+		private static Node node(String localName) {
+			return NodeFactory.createURI(uri + localName);
+		}
+
+		public static final Node DataSet = node("DataSet");
+		public static final Node DataStructureDefinition = node("DataStructureDefinition");
+		public static final Node Observation = node("Observation");
+		public static final Node Slice = node("Slice");
+		public static final Node SliceKey = node("SliceKey");
+		public static final Node DimensionProperty = node("DimensionProperty");
+		public static final Node MeasureProperty = node("MeasureProperty");
+		public static final Node AttributeProperty = node("AttributeProperty");
+
+		public static final Node dataSet = node("dataSet");
+		public static final Node observation = node("observation");
+		public static final Node slice = node("slice");
+		public static final Node sliceKey = node("sliceKey");
+		public static final Node sliceStructure = node("sliceStructure");
+		public static final Node structure = node("structure");
+		public static final Node component = node("component");
+		public static final Node componentProperty = node("componentProperty");
+		public static final Node componentAttachment = node("componentAttachment");
+		public static final Node dimension = node("dimension");
+		public static final Node measure = node("measure");
+		public static final Node attribute = node("attribute");
+	}
 }
@@ -0,0 +1,76 @@
+package eu.europa.ec.eurostat.los.utils;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFDataMgr;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.rdfhdt.hdt.enums.RDFNotation;
+import org.rdfhdt.hdt.exceptions.ParserException;
+import org.rdfhdt.hdt.hdt.HDT;
+import org.rdfhdt.hdt.hdt.HDTManager;
+import org.rdfhdt.hdt.options.HDTSpecification;
+
+/**
+ * Conversion of Turtle files to the <a href="http://www.rdfhdt.org/">HDT</a> compressed format.
+ *
+ * The HDT file is written next to the Turtle file, together with its triple-pattern index, so that
+ * consumers can memory-map it (<code>HDTManager.mapIndexedHDT</code>) and query it without any load step.
+ */
+public class HDTExport {
+
+	private static Logger logger = LogManager.getLogger(HDTExport.class);
+
+	/**
+	 * Returns the name of the HDT file corresponding to a Turtle file.
+	 *
+	 * @param turtleFileName The name of the Turtle file.
+	 * @return The name of the HDT file.
+	 */
+	public static String getHDTFileName(String turtleFileName) {
+
+		if (turtleFileName.endsWith(".ttl")) return turtleFileName.substring(0, turtleFileName.length() - 4) + ".hdt";
+		return turtleFileName + ".hdt";
+	}
+
+	/**
+	 * Writes a model in a Turtle file and, if requested, in the corresponding HDT file.
+	 *
+	 * @param model The Jena model to write.
+	 * @param turtleFileName The name of the Turtle file.
+	 * @param exportHDT Indicates if the HDT file should also be produced.
+	 * @param baseURI The base URI of the data.
+	 */
+	public static void write(Model model, String turtleFileName, boolean exportHDT, String baseURI) throws IOException, ParserException {
+
+		try (FileOutputStream output = new FileOutputStream(turtleFileName)) {
+			RDFDataMgr.write(output, model, Lang.TURTLE);
+		}
+		if (exportHDT) writeHDT(turtleFileName, baseURI);
+	}
+
+	/**
+	 * Converts a Turtle file to HDT and builds the associated index.
+	 *
+	 * @param turtleFileName The name of the Turtle file.
+	 * @param baseURI The base URI of the data.
+	 * @return The name of the HDT file.
+	 */
+	public static String writeHDT(String turtleFileName, String baseURI) throws IOException, ParserException {
+
+		String hdtFileName = getHDTFileName(turtleFileName);
+		logger.info("Converting " + turtleFileName + " to HDT file " + hdtFileName);
+		try (HDT hdt = HDTManager.generateHDT(turtleFileName, baseURI, RDFNotation.TURTLE, new HDTSpecification(), null)) {
+			hdt.saveToHDT(hdtFileName, null);
+		}
+		// Mapping the file with index creates and saves the index file
+		try (HDT hdt = HDTManager.mapIndexedHDT(hdtFileName, null)) {
+			logger.info("HDT file " + hdtFileName + " written, number of triples: " + hdt.getTriples().getNumberOfElements());
+		}
+
+		return hdtFileName;
+	}
+}
@@ -0,0 +1,119 @@
+package eu.europa.ec.eurostat.los.pop5;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.vocabulary.RDF;
+import org.apache.jena.vocabulary.SKOS;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import eu.europa.ec.eurostat.los.utils.DataCubeOntology;
+
+/**
+ * Creates the DSD, the code lists and the geographic entries of the test table, and checks them against the URI formats of the original POP5 conversion.
+ * The departements, which are read from the INSEE SPARQL endpoint, are not tested.
+ */
+public class DSDModelMakerTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private TableDescriptor descriptor;
+	private Workbook workbook;
+
+	@Before
+	public void openWorkbook() throws IOException {
+
+		descriptor = TableDescriptor.load(TestWorkbooks.DESCRIPTOR_FILE_NAME);
+		File file = folder.newFile("table.xls");
+		TestWorkbooks.write(file, new Object[][] {{"01001", 1, 2, 3}, {"75056", 1, 2, 3}}, new Object[][] {{"75101", 1, 2, 3}});
+		try (InputStream input = new FileInputStream(file)) {
+			workbook = new HSSFWorkbook(input);
+		}
+	}
+
+	@After
+	public void closeWorkbook() throws IOException {
+		workbook.close();
+	}
+
+	@Test
+	public void testConceptScheme() {
+
+		Model conceptScheme = new DSDModelMaker(descriptor, workbook).getConceptScheme(descriptor.getDimensions().get(1));
+
+		Resource scheme = conceptScheme.createResource("http://id.insee.fr/codes/age/ages");
+		assertTrue(conceptScheme.contains(scheme, SKOS.prefLabel, conceptScheme.createLiteral("Âges", "fr")));
+		assertTrue(conceptScheme.contains(conceptScheme.createResource("http://id.insee.fr/codes/age/Age"), SKOS.prefLabel, conceptScheme.createLiteral("Âge", "fr")));
+		Resource item = conceptScheme.createResource("http://id.insee.fr/codes/age/B");
+		assertTrue(conceptScheme.contains(item, SKOS.inScheme, scheme));
+		assertTrue(conceptScheme.contains(item, SKOS.prefLabel, conceptScheme.createLiteral("30 ans ou plus", "fr")));
+		assertEquals(2, conceptScheme.listSubjectsWithProperty(SKOS.inScheme, scheme).toList().size());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testWrongDefinitionLines() throws IOException {
+
+		// The code list of AGE is read at the lines of SEXE
+		TableDescriptor.Dimension age = descriptor.getDimensions().get(1);
+		workbook.getSheetAt(descriptor.getDefinitionsSheetIndex()).getRow(age.getFirstDefinitionLineIndex()).getCell(0).setCellValue("SEXE : Sexe");
+		new DSDModelMaker(descriptor, workbook).getConceptScheme(age);
+	}
+
+	@Test
+	public void testDSD() {
+
+		Model dsdModel = new DSDModelMaker(descriptor, workbook).getDSDModel();
+
+		Resource dsd = dsdModel.createResource("http://id.insee.fr/meta/demo/test/dsd/2015-depcomarm");
+		assertTrue(dsd.hasProperty(RDF.type, DataCubeOntology.DataStructureDefinition));
+		assertEquals(4, dsdModel.listObjectsOfProperty(dsd, DataCubeOntology.component).toList().size());
+		Resource geoDimension = dsdModel.createResource("http://id.insee.fr/meta/cog2017/dimension/DepartementOuCommuneOuArrondissementMunicipal");
+		assertTrue(geoDimension.hasProperty(DataCubeOntology.codeList, dsdModel.createResource("http://id.insee.fr/codes/cog2017/departementsOuCommunesOuArrondissementsMunicipaux")));
+		Resource sexDimension = dsdModel.createResource("http://id.insee.fr/meta/dimension/sexe");
+		assertTrue(sexDimension.hasProperty(DataCubeOntology.codeList, dsdModel.createResource("http://id.insee.fr/codes/sexe/sexes")));
+		assertTrue(sexDimension.hasProperty(DataCubeOntology.concept, dsdModel.createResource("http://purl.org/linked-data/sdmx/2009/concept#sex")));
+		// No SDMX concept for AGE in the test descriptor
+		Resource ageDimension = dsdModel.createResource("http://id.insee.fr/meta/dimension/age");
+		assertTrue(ageDimension.hasProperty(DataCubeOntology.concept, dsdModel.createResource("http://id.insee.fr/concepts/Age")));
+		assertTrue(ageDimension.hasProperty(DataCubeOntology.codeList, dsdModel.createResource("http://id.insee.fr/codes/age/ages")));
+		assertTrue(dsdModel.createResource("http://id.insee.fr/meta/mesure/pop").hasProperty(RDF.type, DataCubeOntology.MeasureProperty));
+
+		// The slice key contains all the dimensions except the last one
+		Resource sliceKey = dsdModel.createResource(descriptor.sliceKeyURI());
+		assertTrue(dsd.hasProperty(DataCubeOntology.sliceKey, sliceKey));
+		assertEquals(2, dsdModel.listObjectsOfProperty(sliceKey, DataCubeOntology.componentProperty).toList().size());
+		assertTrue(sliceKey.hasProperty(DataCubeOntology.componentProperty, geoDimension));
+		assertTrue(sliceKey.hasProperty(DataCubeOntology.componentProperty, sexDimension));
+	}
+
+	@Test
+	public void testGeoEntries() {
+
+		Model geoModel = ModelFactory.createDefaultModel();
+		new DSDModelMaker(descriptor, workbook).addGeoEntries(geoModel);
+
+		Resource municipality = geoModel.createResource("http://id.insee.fr/codes/cog2017/commune/01001");
+		assertTrue(municipality.hasProperty(SKOS.notation, "01001"));
+		assertTrue(municipality.hasProperty(SKOS.broader, geoModel.createResource("http://id.insee.fr/codes/cog2017/departement/01")));
+		Resource arrondissement = geoModel.createResource("http://id.insee.fr/codes/cog2017/arrondissementMunicipal/75101");
+		assertTrue(arrondissement.hasProperty(SKOS.broader, geoModel.createResource("http://id.insee.fr/codes/cog2017/commune/75056")));
+		assertTrue(arrondissement.hasProperty(SKOS.inScheme, geoModel.createResource("http://id.insee.fr/codes/cog2017/departementsOuCommunesOuArrondissementsMunicipaux")));
+		// The footnote is not taken as a geographic entry
+		assertEquals(3, geoModel.listSubjectsWithProperty(SKOS.notation).toList().size());
+	}
+}
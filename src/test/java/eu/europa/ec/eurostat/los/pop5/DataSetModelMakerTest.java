@@ -0,0 +1,109 @@
+package eu.europa.ec.eurostat.los.pop5;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.Property;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.riot.RDFDataMgr;
+import org.apache.jena.vocabulary.RDF;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import eu.europa.ec.eurostat.los.utils.DataCubeOntology;
+
+/**
+ * Converts a small workbook and checks the observations, the departemental sums and the URIs against the formats of the original POP5 conversion.
+ * The workbook is written to the file of the test descriptor (<code>target/test-table.xls</code>).
+ */
+public class DataSetModelMakerTest {
+
+	private static final String OBSERVATION_BASE_URI = "http://id.insee.fr/meta/demo/test/observation/2015-";
+	private static final String COG_BASE_URI = "http://id.insee.fr/codes/cog2017/";
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private TableDescriptor descriptor;
+
+	@Before
+	public void writeWorkbook() throws IOException {
+
+		descriptor = TableDescriptor.load(TestWorkbooks.DESCRIPTOR_FILE_NAME);
+		TestWorkbooks.write(new File(descriptor.getFileName()),
+				new Object[][] {{"01001", 10, 20, 30}, {"01002", 1, 2, 3}, {"2A004", 4, null, 6}},
+				new Object[][] {{"75101", 7, 8, 9}});
+	}
+
+	@Test
+	public void testWrite() throws Exception {
+
+		// 11 observations for the municipalities and arrondissements (one empty cell), 3 for departement 01 and 2 for departement 20
+		assertEquals(16, new DataSetModelMaker(descriptor, new CodeListCache()).write(false));
+
+		Model dataSet = RDFDataMgr.loadModel(descriptor.getDataSetFileName());
+		Resource dataSetResource = dataSet.createResource(descriptor.dataSetURI());
+		assertTrue(dataSet.contains(dataSetResource, RDF.type, DataCubeOntology.DataSet));
+		assertTrue(dataSet.contains(dataSetResource, DataCubeOntology.structure, dataSet.createResource("http://id.insee.fr/meta/demo/test/dsd/2015-depcomarm")));
+		assertEquals(11, dataSet.listSubjectsWithProperty(RDF.type, DataCubeOntology.Observation).toList().size());
+		checkObservation(dataSet, "01001-1-B", "commune/01001", "1", "B", 20);
+		checkObservation(dataSet, "2A004-2-A", "commune/2A004", "2", "A", 6);
+		checkObservation(dataSet, "75101-1-A", "arrondissementMunicipal/75101", "1", "A", 7);
+		assertFalse(dataSet.containsResource(dataSet.createResource(OBSERVATION_BASE_URI + "2A004-1-B")));
+
+		// Departemental sums are computed by column, from the municipalities only
+		Model departements = RDFDataMgr.loadModel(descriptor.getDepartementalDataSetFileName());
+		assertEquals(5, departements.listSubjectsWithProperty(RDF.type, DataCubeOntology.Observation).toList().size());
+		checkObservation(departements, "01-1-A", "departement/01", "1", "A", 11);
+		checkObservation(departements, "01-2-A", "departement/01", "2", "A", 33);
+		checkObservation(departements, "20-2-A", "departement/20", "2", "A", 6);
+		assertFalse(departements.containsResource(departements.createResource(OBSERVATION_BASE_URI + "20-1-B")));
+	}
+
+	@Test
+	public void testWriteAbbreviated() throws Exception {
+
+		assertEquals(16, new DataSetModelMaker(descriptor, new CodeListCache()).write(true));
+
+		// One slice per geographic area and sex
+		Model dataSet = RDFDataMgr.loadModel(descriptor.getDataSetFileName());
+		assertEquals(8, dataSet.listObjectsOfProperty(dataSet.createResource(descriptor.dataSetURI()), DataCubeOntology.slice).toList().size());
+		Resource slice = dataSet.createResource("http://id.insee.fr/meta/demo/test/slice/2015-01001-1");
+		assertTrue(slice.hasProperty(DataCubeOntology.observation, dataSet.createResource(OBSERVATION_BASE_URI + "01001-1-B")));
+		assertTrue(slice.hasProperty(dataSet.createProperty(descriptor.geoDimensionURI()), dataSet.createResource(COG_BASE_URI + "commune/01001")));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testIncompleteHeader() throws IOException {
+
+		File file = folder.newFile("incomplete.xls");
+		TestWorkbooks.write(file, new Object[][] {{"CODGEO", "SEXE", "1", "1", "2"}, {null, "AGE", "A", "B", null}}, new Object[][] {{"01001", 1, 2, 3}}, new Object[][] {});
+		new TableReader(descriptor).read(file.getPath(), (sheetIndex, geoCode, columnIndexes, values, size) -> {});
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testWrongHeaderConcept() throws IOException {
+
+		File file = folder.newFile("wrong.xls");
+		TestWorkbooks.write(file, new Object[][] {{"CODGEO", "AGE", "A", "B", "A"}, {null, "SEXE", "1", "1", "2"}}, new Object[][] {{"01001", 1, 2, 3}}, new Object[][] {});
+		new TableReader(descriptor).read(file.getPath(), (sheetIndex, geoCode, columnIndexes, values, size) -> {});
+	}
+
+	private void checkObservation(Model model, String observationId, String geoItem, String sex, String age, float measure) {
+
+		Resource observation = model.createResource(OBSERVATION_BASE_URI + observationId);
+		assertTrue(observationId, observation.hasProperty(DataCubeOntology.dataSet, model.createResource(descriptor.dataSetURI())));
+		assertTrue(observationId, observation.hasProperty(model.createProperty("http://id.insee.fr/meta/cog2017/dimension/DepartementOuCommuneOuArrondissementMunicipal"), model.createResource(COG_BASE_URI + geoItem)));
+		assertTrue(observationId, observation.hasProperty(model.createProperty("http://id.insee.fr/meta/dimension/sexe"), model.createResource("http://id.insee.fr/codes/sexe/" + sex)));
+		assertTrue(observationId, observation.hasProperty(model.createProperty("http://id.insee.fr/meta/dimension/age"), model.createResource("http://id.insee.fr/codes/age/" + age)));
+		Property measureProperty = model.createProperty("http://id.insee.fr/meta/mesure/pop");
+		assertEquals(observationId, measure, observation.getProperty(measureProperty).getFloat(), 0);
+	}
+}
@@ -0,0 +1,156 @@
+package eu.europa.ec.eurostat.los.pop5;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.rdf.model.ResourceFactory;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import eu.europa.ec.eurostat.los.utils.DataCubeOntology;
+
+/**
+ * Compares two small workbooks with added, removed and changed observations.
+ * The data columns are (SEXE, AGE) = (1, A), (1, B), (2, A).
+ */
+public class DeltaMakerTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private TableDescriptor descriptor;
+
+	@Before
+	public void loadDescriptor() throws IOException {
+		descriptor = TableDescriptor.load(TestWorkbooks.DESCRIPTOR_FILE_NAME);
+	}
+
+	@Test
+	public void testCompare() throws IOException {
+
+		String previousFileName = writeWorkbook("previous.xls",
+				new Object[][] {{"01001", 10, 20, 30}, {"2A004", 1, 2, 3}, {"21001", 5, 5, 5}},
+				new Object[][] {{"75101", 1, 1, 1}});
+		// 01001 (1, B) changed, 2B002 added (between 2A and 21 in the INSEE order), 21001 removed
+		String newFileName = writeWorkbook("new.xls",
+				new Object[][] {{"01001", 10, 25, 30}, {"2A004", 1, 2, 3}, {"2B002", 7, 7, 7}},
+				new Object[][] {{"75101", 1, 1, 1}});
+
+		ByteArrayOutputStream deltaOutput = new ByteArrayOutputStream();
+		StringWriter patch = new StringWriter();
+		try (PrintWriter patchWriter = new PrintWriter(patch)) {
+			new DeltaMaker(descriptor, new CodeListCache(), false).compare(previousFileName, newFileName, deltaOutput, patchWriter);
+		}
+
+		// Municipalities: 3 added, 3 removed, 1 changed; departements: 20 has 3 changed, 21 has 3 removed and 01 has 1 changed
+		Model delta = ModelFactory.createDefaultModel();
+		delta.read(new StringReader(deltaOutput.toString("UTF-8")), null, "TTL");
+		assertEquals(3, countObservations(delta, "-added"));
+		assertEquals(6, countObservations(delta, "-removed"));
+		assertEquals(5, countObservations(delta, "-changed"));
+
+		List<String> lines = Arrays.asList(patch.toString().split("\\R"));
+		assertEquals("TX .", lines.get(0));
+		assertEquals("TC .", lines.get(lines.size() - 1));
+		String measure = "<http://id.insee.fr/meta/mesure/pop> ";
+		String changedObservation = "<http://id.insee.fr/meta/demo/test/observation/2015-01001-1-B> ";
+		assertTrue(lines.contains("D " + changedObservation + measure + "\"20.0\"^^<http://www.w3.org/2001/XMLSchema#float> ."));
+		assertTrue(lines.contains("A " + changedObservation + measure + "\"25.0\"^^<http://www.w3.org/2001/XMLSchema#float> ."));
+		assertTrue(lines.contains("A <http://id.insee.fr/meta/demo/test/observation/2015-2B002-2-A> <http://id.insee.fr/meta/cog2017/dimension/DepartementOuCommuneOuArrondissementMunicipal> <http://id.insee.fr/codes/cog2017/commune/2B002> ."));
+		assertTrue(lines.contains("D <http://id.insee.fr/meta/demo/test/observation/2015-21001-1-A> " + measure + "\"5.0\"^^<http://www.w3.org/2001/XMLSchema#float> ."));
+		// Each added or removed observation has 6 triples in the normalized form, each changed one 2 patch lines
+		assertEquals(2 + 3 * 6 + 6 * 6 + 5 * 2, lines.size());
+		// Unchanged rows (2A004 and the arrondissement) do not appear
+		assertTrue(lines.stream().noneMatch(line -> line.contains("2015-2A004-") || line.contains("2015-75101-")));
+	}
+
+	@Test
+	public void testCompareAbbreviated() throws IOException {
+
+		String previousFileName = writeWorkbook("previous.xls",
+				new Object[][] {{"01001", 10, 20, 30}, {"21001", 5, 5, 5}},
+				new Object[][] {{"75101", 1, 1, 1}});
+		// 01001 (1, B) changed, 01002 added, 21001 removed; 75101 (2, A) removed, which leaves its slice (1) unchanged
+		String newFileName = writeWorkbook("new.xls",
+				new Object[][] {{"01001", 10, 25, 30}, {"01002", 7, 7, 7}},
+				new Object[][] {{"75101", 1, 1, null}});
+
+		ByteArrayOutputStream deltaOutput = new ByteArrayOutputStream();
+		StringWriter patch = new StringWriter();
+		try (PrintWriter patchWriter = new PrintWriter(patch)) {
+			new DeltaMaker(descriptor, new CodeListCache(), true).compare(previousFileName, newFileName, deltaOutput, patchWriter);
+		}
+
+		// The delta data sets stay normalized: 6 triples per observation
+		Model delta = ModelFactory.createDefaultModel();
+		delta.read(new StringReader(deltaOutput.toString("UTF-8")), null, "TTL");
+		assertEquals(3, countObservations(delta, "-added"));
+		assertEquals(7, countObservations(delta, "-removed"));
+		assertEquals(4, countObservations(delta, "-changed"));
+
+		List<String> lines = Arrays.asList(patch.toString().split("\\R"));
+		String sliceStructure = " <http://purl.org/linked-data/cube#sliceStructure> <" + descriptor.sliceKeyURI() + "> .";
+		String slices = "<http://id.insee.fr/meta/demo/test/slice/";
+		assertTrue(lines.contains("D " + slices + "2015-21001-1>" + sliceStructure));
+		assertTrue(lines.contains("D " + slices + "2015-21001-2>" + sliceStructure));
+		assertTrue(lines.contains("A " + slices + "2015-01002-1>" + sliceStructure));
+		assertTrue(lines.contains("D " + slices + "2015-75101-2> <http://purl.org/linked-data/cube#observation> <http://id.insee.fr/meta/demo/test/observation/2015-75101-2-A> ."));
+		assertTrue(lines.contains("D " + slices + "2015-75101-2>" + sliceStructure));
+		// Slices keeping observations are not touched
+		assertTrue(lines.stream().noneMatch(line -> line.startsWith("D " + slices + "2015-75101-1>") || line.contains(slices + "2015-01001-")));
+		// Observations have 4 triples in the abbreviated form (2 patch lines when changed), and slices 4 triples
+		// Departement 01 has 3 changed observations, departement 21 is removed like 21001; slices: 2 added, 5 removed (21001, 21 and 75101-2)
+		assertEquals(2 + 3 * 4 + 7 * 4 + 4 * 2 + (2 + 5) * 4, lines.size());
+	}
+
+	@Test
+	public void testUnorderedRows() throws IOException {
+
+		String previousFileName = writeWorkbook("previous.xls", new Object[][] {{"21001", 1, 1, 1}, {"2A004", 1, 1, 1}}, new Object[][] {});
+		String newFileName = writeWorkbook("new.xls", new Object[][] {{"21001", 1, 1, 1}}, new Object[][] {});
+		long spilledFiles = countSpilledFiles();
+		try {
+			new DeltaMaker(descriptor, new CodeListCache(), false).compare(previousFileName, newFileName, new ByteArrayOutputStream(), new PrintWriter(new StringWriter()));
+			fail("Unordered rows must be rejected");
+		} catch (IllegalStateException e) {
+			// The temporary files of the rejected workbook are deleted
+			assertEquals(spilledFiles, countSpilledFiles());
+		}
+	}
+
+	private static long countSpilledFiles() throws IOException {
+
+		try (Stream<Path> files = Files.list(Paths.get(System.getProperty("java.io.tmpdir")))) {
+			return files.filter(file -> file.getFileName().toString().startsWith("delta-")).count();
+		}
+	}
+
+	private int countObservations(Model delta, String suffix) {
+		return delta.listSubjectsWithProperty(DataCubeOntology.dataSet, ResourceFactory.createResource(descriptor.dataSetURI() + suffix)).toList().size();
+	}
+
+	private String writeWorkbook(String fileName, Object[][] municipalities, Object[][] arrondissements) throws IOException {
+
+		File file = folder.newFile(fileName);
+		TestWorkbooks.write(file, municipalities, arrondissements);
+		return file.getPath();
+	}
+}
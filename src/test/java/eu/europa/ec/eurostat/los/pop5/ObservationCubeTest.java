@@ -0,0 +1,137 @@
+package eu.europa.ec.eurostat.los.pop5;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.apache.jena.riot.Lang;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the selection and aggregation of observations on a small cube containing Paris as a departement, as a municipality and as arrondissements.
+ */
+public class ObservationCubeTest {
+
+	private static final String PREFIXES = "@prefix qb: <http://purl.org/linked-data/cube#> .\n"
+			+ "@prefix xsd: <http://www.w3.org/2001/XMLSchema#> .\n"
+			+ "@prefix dim: <http://id.insee.fr/meta/dimension/> .\n"
+			+ "@prefix obs: <http://example.org/observation/> .\n"
+			+ "@prefix ex: <http://example.org/> .\n";
+
+	private ObservationCube cube;
+
+	@Before
+	public void loadCube() {
+
+		StringBuilder turtle = new StringBuilder(PREFIXES);
+		turtle.append("ex:dataSet a qb:DataSet .\n");
+		addObservation(turtle, "departement/75", "1", 100);
+		addObservation(turtle, "departement/75", "2", 110);
+		addObservation(turtle, "commune/75056", "1", 100);
+		addObservation(turtle, "commune/75056", "2", 110);
+		addObservation(turtle, "commune/01001", "1", 7);
+		addObservation(turtle, "arrondissementMunicipal/75101", "1", 40);
+		addObservation(turtle, "arrondissementMunicipal/75102", "1", 60);
+		addObservation(turtle, "arrondissementMunicipal/75102", "2", 110);
+		// Incomplete observation (no measure), ignored
+		turtle.append("obs:incomplete qb:dataSet ex:dataSet ; dim:geo <http://id.insee.fr/codes/cog2017/commune/01002> ; dim:sexe <http://id.insee.fr/codes/sexe/1> .\n");
+
+		LinkedHashMap<String, String> dimensions = new LinkedHashMap<String, String>();
+		dimensions.put("geo", "http://id.insee.fr/meta/dimension/geo");
+		dimensions.put("sexe", "http://id.insee.fr/meta/dimension/sexe");
+		LinkedHashMap<String, String> levelDimensions = new LinkedHashMap<String, String>();
+		levelDimensions.put("geoLevel", "geo");
+		cube = new ObservationCube(dimensions, levelDimensions, "http://example.org/measure");
+		cube.load(new ByteArrayInputStream(turtle.toString().getBytes(StandardCharsets.UTF_8)), Lang.TURTLE);
+		cube.index();
+	}
+
+	private static void addObservation(StringBuilder turtle, String geo, String sex, int measure) {
+
+		String code = geo.substring(geo.indexOf('/') + 1);
+		turtle.append("obs:").append(code).append("-").append(sex).append(" a qb:Observation ; qb:dataSet ex:dataSet ;\n");
+		turtle.append("  dim:geo <http://id.insee.fr/codes/cog2017/").append(geo).append("> ; dim:sexe <http://id.insee.fr/codes/sexe/").append(sex).append("> ;\n");
+		turtle.append("  ex:measure \"").append(measure).append("\"^^xsd:float .\n");
+	}
+
+	@Test
+	public void testSelect() {
+
+		assertEquals(8, cube.size());
+		assertArrayEquals(new String[] {"geo", "sexe", "geoLevel"}, cube.getDimensionNames());
+
+		List<String[]> observations = cube.slice(filters("geo", "75102"), 10);
+		assertEquals(2, observations.size());
+		assertArrayEquals(new String[] {"75102", "1", "arrondissementMunicipal", "60.0"}, observations.get(0));
+		assertArrayEquals(new String[] {"75102", "2", "arrondissementMunicipal", "110.0"}, observations.get(1));
+
+		Map<String, String> filters = filters("geoLevel", "commune");
+		filters.put("sexe", "1");
+		assertEquals(2, cube.slice(filters, 10).size());
+		assertEquals(1, cube.slice(filters, 1).size());
+		assertEquals(0, cube.slice(filters("geo", "99999"), 10).size());
+	}
+
+	@Test
+	public void testTotal() {
+
+		// All levels together count Paris three times
+		assertEquals(637, cube.total(Collections.emptyMap()), 0);
+		assertEquals(217, cube.total(filters("geoLevel", "commune")), 0);
+		assertEquals(210, cube.total(filters("geoLevel", "arrondissementMunicipal")), 0);
+		assertEquals(210, cube.total(filters("geo", "75")), 0);
+		Map<String, String> filters = filters("geoLevel", "commune");
+		filters.put("sexe", "1");
+		assertEquals(107, cube.total(filters), 0);
+	}
+
+	@Test
+	public void testGroupBy() {
+
+		SortedMap<String, Double> bySex = cube.groupBy("sexe", filters("geoLevel", "commune"));
+		assertEquals(2, bySex.size());
+		assertEquals(107, bySex.get("1"), 0);
+		assertEquals(110, bySex.get("2"), 0);
+
+		SortedMap<String, Double> byLevel = cube.groupBy("geoLevel", Collections.emptyMap());
+		assertEquals(210, byLevel.get("departement"), 0);
+		assertEquals(217, byLevel.get("commune"), 0);
+		assertEquals(210, byLevel.get("arrondissementMunicipal"), 0);
+
+		assertEquals(3, cube.groupBy("geo", filters("sexe", "2")).size());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testAbbreviatedForm() {
+
+		StringBuilder turtle = new StringBuilder(PREFIXES);
+		turtle.append("ex:dataSet a qb:DataSet ; qb:slice ex:slice .\n");
+		turtle.append("ex:slice dim:geo <http://id.insee.fr/codes/cog2017/commune/01001> ; qb:observation obs:01001-1 .\n");
+		turtle.append("obs:01001-1 qb:dataSet ex:dataSet ; dim:sexe <http://id.insee.fr/codes/sexe/1> ; ex:measure \"7\"^^xsd:float .\n");
+		LinkedHashMap<String, String> dimensions = new LinkedHashMap<String, String>();
+		dimensions.put("geo", "http://id.insee.fr/meta/dimension/geo");
+		dimensions.put("sexe", "http://id.insee.fr/meta/dimension/sexe");
+		new ObservationCube(dimensions, "http://example.org/measure").load(new ByteArrayInputStream(turtle.toString().getBytes(StandardCharsets.UTF_8)), Lang.TURTLE);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnknownDimension() {
+		cube.total(filters("age", "1"));
+	}
+
+	private static Map<String, String> filters(String dimension, String code) {
+
+		Map<String, String> filters = new TreeMap<String, String>();
+		filters.put(dimension, code);
+		return filters;
+	}
+}
@@ -0,0 +1,117 @@
+package eu.europa.ec.eurostat.los.pop5;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Checks the loading of table descriptors, and that the POP5 descriptor gives the URIs of the original POP5 conversion.
+ */
+public class TableDescriptorTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testPOP5URIs() throws IOException {
+
+		TableDescriptor descriptor = TableDescriptor.load(Configuration.POP5_DESCRIPTOR_FILE_NAME);
+
+		assertEquals("http://id.insee.fr/meta/demo/pop5/dataSet/2015-depcomarm", descriptor.dataSetURI());
+		assertEquals("http://id.insee.fr/meta/demo/pop5/dsd/2015-depcomarm", descriptor.dsdURI());
+		assertEquals("http://id.insee.fr/meta/demo/pop5/observation/2015-01001-1-15-11", descriptor.observationURI("01001", new String[] {"1", "15", "11"}));
+		assertEquals("http://id.insee.fr/meta/demo/pop5/observation/2015-2A-2-80-22", descriptor.observationURI("2A", new String[] {"2", "80", "22"}));
+		assertEquals("http://id.insee.fr/meta/mesure/pop15Plus", descriptor.getMeasureURI());
+		assertEquals("http://id.insee.fr/meta/cog2017/dimension/DepartementOuCommuneOuArrondissementMunicipal", descriptor.geoDimensionURI());
+		assertEquals("http://id.insee.fr/codes/cog2017/departement/01", descriptor.cogItemURI("01"));
+		assertEquals("http://id.insee.fr/codes/cog2017/departement/971", descriptor.cogItemURI("971"));
+		assertEquals("http://id.insee.fr/codes/cog2017/commune/2A004", descriptor.cogItemURI("2A004"));
+		assertEquals("http://id.insee.fr/codes/cog2017/commune/75056", descriptor.cogItemURI("75056"));
+		assertEquals("http://id.insee.fr/codes/cog2017/arrondissementMunicipal/75101", descriptor.cogItemURI("75101"));
+
+		List<String> codes = descriptor.getDimensions().stream().map(TableDescriptor.Dimension::getCode).collect(Collectors.toList());
+		assertEquals(Arrays.asList("SEXE", "AGEQ65", "TACTR"), codes);
+		TableDescriptor.Dimension age = descriptor.getDimensions().get(1);
+		assertEquals("http://id.insee.fr/meta/dimension/ageq65", age.propertyURI());
+		assertEquals("http://id.insee.fr/codes/ageq65/15", age.codeItemURI("15"));
+		assertEquals("http://id.insee.fr/codes/ageq65/agesQuinquennaux", age.conceptSchemeURI());
+		assertEquals("http://id.insee.fr/codes/ageq65/AgeQuinquennal", age.codeConceptURI());
+		assertEquals("age", age.getSDMXConcept());
+		TableDescriptor.Dimension activity = descriptor.getDimensions().get(2);
+		assertEquals("http://id.insee.fr/concepts/TypeDActivite", activity.conceptURI());
+		assertNull(activity.getSDMXConcept());
+	}
+
+	@Test
+	public void testLoad() throws IOException {
+
+		TableDescriptor descriptor = TableDescriptor.load(TestWorkbooks.DESCRIPTOR_FILE_NAME);
+
+		assertEquals("TEST", descriptor.getId());
+		assertEquals(2015, descriptor.getReferenceYear());
+		assertEquals(2017, descriptor.getGeoYear());
+		assertEquals(Arrays.asList(0, 1), descriptor.getSheetIndexes());
+		assertEquals(1, descriptor.getFirstHeaderLineIndex());
+		assertEquals(2, descriptor.getLastHeaderLineIndex());
+		assertEquals(Integer.valueOf(0), descriptor.getCommuneSheetIndex());
+		// Definition lines are given as displayed in the workbook (1-based)
+		assertEquals(4, descriptor.getDimensions().get(1).getFirstDefinitionLineIndex());
+		assertEquals(6, descriptor.getDimensions().get(1).getLastDefinitionLineIndex());
+		assertEquals("target/ds-test.ttl", descriptor.getDataSetFileName());
+		assertEquals("target/ds-test-dep.ttl", descriptor.getDepartementalDataSetFileName());
+		assertEquals("target/cs-cog2017.ttl", descriptor.getGeoCodeListFileName());
+		assertEquals("http://id.insee.fr/meta/demo/test/slice/2015-01001-1", descriptor.sliceURI("01001", new String[] {"1", "A"}));
+		assertArrayEquals(new String[] {"en"}, descriptor.getSliceKeyLabels().keySet().toArray());
+	}
+
+	@Test
+	public void testMissingProperty() throws IOException {
+
+		try {
+			TableDescriptor.load(writeDescriptor("measure.uri", null));
+			fail("A descriptor without measure URI must be rejected");
+		} catch (IllegalArgumentException e) {
+			assertTrue(e.getMessage().contains("measure.uri"));
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testMissingDimensionProperty() throws IOException {
+		TableDescriptor.load(writeDescriptor("dimension.AGE.schemePath", null));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testHeaderLinesMismatch() throws IOException {
+		// Three header lines for two dimensions
+		TableDescriptor.load(writeDescriptor("headerLines", "1-3"));
+	}
+
+	/**
+	 * Writes a copy of the test descriptor where a property is replaced, or removed if the value is <code>null</code>.
+	 */
+	private String writeDescriptor(String key, String value) throws IOException {
+
+		List<String> lines = Files.readAllLines(Paths.get(TestWorkbooks.DESCRIPTOR_FILE_NAME), StandardCharsets.UTF_8).stream()
+				.filter(line -> !line.startsWith(key + " "))
+				.collect(Collectors.toList());
+		if (value != null) lines.add(key + " = " + value);
+		File file = folder.newFile("descriptor.properties");
+		Files.write(file.toPath(), lines, StandardCharsets.UTF_8);
+		return file.getPath();
+	}
+}
@@ -0,0 +1,69 @@
+package eu.europa.ec.eurostat.los.pop5;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+
+/**
+ * Writes small workbooks with the layout of the test table (<code>src/test/resources/tables/test-table.properties</code>): municipalities
+ * in the first sheet, arrondissements in the second one and the code lists in the third one.
+ * The data columns are (SEXE, AGE) = (1, A), (1, B), (2, A).
+ */
+class TestWorkbooks {
+
+	static final String DESCRIPTOR_FILE_NAME = "src/test/resources/tables/test-table.properties";
+
+	static final Object[][] HEADER = {{"CODGEO", "SEXE", "1", "1", "2"}, {null, "AGE", "A", "B", "A"}};
+
+	/** The definition lines are 1-3 for SEXE and 5-7 for AGE, as in the descriptor */
+	static final String[] DEFINITIONS = {"SEXE : Sexe", "1 : Hommes", "2 : Femmes", "", "AGE : Âge", "A : Moins de 30 ans", "B : 30 ans ou plus"};
+
+	/**
+	 * Writes a workbook with the standard header. Blank lines and a footnote are added after the data rows.
+	 *
+	 * @param file The workbook file.
+	 * @param municipalities The rows of the municipalities sheet: geographic code followed by the values (<code>null</code> for an empty cell).
+	 * @param arrondissements The rows of the arrondissements sheet.
+	 */
+	static void write(File file, Object[][] municipalities, Object[][] arrondissements) throws IOException {
+		write(file, HEADER, municipalities, arrondissements);
+	}
+
+	/**
+	 * Writes a workbook with a given header, which is written from the second line.
+	 */
+	static void write(File file, Object[][] header, Object[][] municipalities, Object[][] arrondissements) throws IOException {
+
+		try (Workbook workbook = new HSSFWorkbook(); OutputStream output = new FileOutputStream(file)) {
+			for (Object[][] data : Arrays.asList(municipalities, arrondissements)) {
+				Sheet sheet = workbook.createSheet();
+				sheet.createRow(0).createCell(0).setCellValue("Test table");
+				for (int lineIndex = 0; lineIndex < header.length; lineIndex++) {
+					Row row = sheet.createRow(lineIndex + 1);
+					for (int columnIndex = 0; columnIndex < header[lineIndex].length; columnIndex++) {
+						if (header[lineIndex][columnIndex] != null) row.createCell(columnIndex).setCellValue((String) header[lineIndex][columnIndex]);
+					}
+				}
+				int rowIndex = 4;
+				for (Object[] values : data) {
+					Row row = sheet.createRow(rowIndex++);
+					row.createCell(0).setCellValue((String) values[0]);
+					row.createCell(1).setCellValue("Commune " + values[0]);
+					for (int index = 1; index < values.length; index++) if (values[index] != null) row.createCell(index + 1).setCellValue((Integer) values[index]);
+				}
+				sheet.createRow(rowIndex++).createCell(1).setCellValue("");
+				sheet.createRow(rowIndex++).createCell(0).setCellValue("Source : Insee");
+			}
+			Sheet definitions = workbook.createSheet();
+			for (int lineIndex = 0; lineIndex < DEFINITIONS.length; lineIndex++) definitions.createRow(lineIndex).createCell(0).setCellValue(DEFINITIONS[lineIndex]);
+			workbook.write(output);
+		}
+	}
+}
@@ -0,0 +1,124 @@
+package eu.europa.ec.eurostat.los.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.rdf.model.Property;
+import org.apache.jena.rdf.model.RDFNode;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.riot.system.StreamRDF;
+import org.apache.jena.riot.system.StreamRDFLib;
+import org.apache.jena.vocabulary.RDF;
+import org.apache.jena.vocabulary.RDFS;
+import org.junit.Before;
+import org.junit.Test;
+
+import eu.europa.ec.eurostat.los.pop5.CodeListCache;
+import eu.europa.ec.eurostat.los.pop5.Configuration;
+import eu.europa.ec.eurostat.los.pop5.ObservationWriter;
+import eu.europa.ec.eurostat.los.pop5.TableDescriptor;
+
+/**
+ * Checks that the normalization of observations written in the abbreviated form, in memory or in a stream, gives the observations written in the normalized form.
+ */
+public class DataCubeNormalizerTest {
+
+	private TableDescriptor descriptor;
+	private CodeListCache cache;
+
+	@Before
+	public void loadDescriptor() throws IOException {
+
+		descriptor = TableDescriptor.load("src/test/resources/tables/test-table.properties");
+		cache = new CodeListCache();
+	}
+
+	@Test
+	public void testRoundTrip() {
+
+		Model abbreviated = writeObservations(true);
+		Model normalized = writeObservations(false);
+		// Before normalization, the geographic dimension is only given on the slices
+		Property geoDimension = abbreviated.createProperty(descriptor.geoDimensionURI());
+		assertFalse(abbreviated.listSubjectsWithProperty(DataCubeOntology.dataSet).toList().stream().anyMatch(observation -> observation.hasProperty(geoDimension)));
+
+		DataCubeNormalizer.normalize(abbreviated.add(getDSDModel()));
+		DataCubeNormalizer.normalize(normalized.add(getDSDModel()));
+		assertEquals(8, abbreviated.listSubjectsWithProperty(RDF.type, DataCubeOntology.Observation).toList().size());
+
+		// The slices are the only difference between the two forms
+		assertEquals(4, abbreviated.listSubjectsWithProperty(RDF.type, DataCubeOntology.Slice).toList().size());
+		for (Resource slice : abbreviated.listSubjectsWithProperty(RDF.type, DataCubeOntology.Slice).toList()) abbreviated.removeAll(slice, null, null);
+		abbreviated.removeAll(null, DataCubeOntology.slice, (RDFNode) null);
+		assertTrue(abbreviated.isIsomorphicWith(normalized));
+	}
+
+	@Test
+	public void testStream() {
+
+		Model streamed = ModelFactory.createDefaultModel();
+		writeObservations(DataCubeNormalizer.getStream(DataCubeNormalizer.normalize(getDSDModel()), StreamRDFLib.graph(streamed.getGraph())), true);
+		assertEquals(4, streamed.listSubjectsWithProperty(RDF.type, DataCubeOntology.Slice).toList().size());
+
+		for (Resource slice : streamed.listSubjectsWithProperty(RDF.type, DataCubeOntology.Slice).toList()) streamed.removeAll(slice, null, null);
+		streamed.removeAll(null, DataCubeOntology.slice, (RDFNode) null);
+		assertTrue(streamed.isIsomorphicWith(writeObservations(false)));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testStreamPreviousArea() {
+
+		StreamRDF stream = DataCubeNormalizer.getStream(DataCubeNormalizer.normalize(getDSDModel()), StreamRDFLib.sinkNull());
+		writeObservations(stream, true);
+		// The slices of the first municipality are no longer kept
+		Node slice = NodeFactory.createURI(descriptor.sliceURI("01001", new String[] {"1", "A"}));
+		stream.triple(Triple.create(slice, DataCubeOntology.Nodes.observation, NodeFactory.createURI(descriptor.observationURI("01001", new String[] {"1", "C"}))));
+	}
+
+	/**
+	 * Writes observations for two municipalities and all the combinations of the dimensions of the test table.
+	 */
+	private Model writeObservations(boolean abbreviatedForm) {
+
+		Model model = ModelFactory.createDefaultModel();
+		writeObservations(StreamRDFLib.graph(model.getGraph()), abbreviatedForm);
+		return model;
+	}
+
+	private void writeObservations(StreamRDF stream, boolean abbreviatedForm) {
+
+		ObservationWriter writer = new ObservationWriter(descriptor, cache, stream, abbreviatedForm);
+		writer.writeDataSet();
+		float measure = 1;
+		for (String geoCode : new String[] {"01001", "75056"}) {
+			for (String sex : new String[] {"1", "2"}) {
+				for (String age : new String[] {"A", "B"}) writer.writeObservation(geoCode, new String[] {sex, age}, measure++);
+			}
+		}
+	}
+
+	/**
+	 * Returns the components of the data structure definition, which are needed by the normalization.
+	 * As in the DSD of the tables, the geographic dimension is a sub-property of the SDMX reference area.
+	 */
+	private Model getDSDModel() {
+
+		Model dsdModel = ModelFactory.createDefaultModel();
+		Resource dsd = dsdModel.createResource(descriptor.dsdURI(), DataCubeOntology.DataStructureDefinition);
+		dsd.addProperty(DataCubeOntology.component, dsdModel.createResource(DataCubeOntology.ComponentSpecification).addProperty(DataCubeOntology.dimension, dsdModel.createResource(descriptor.geoDimensionURI())
+				.addProperty(RDFS.subPropertyOf, dsdModel.createResource(Configuration.SDMX_DIMENSION_BASE_URI + "refArea"))));
+		for (TableDescriptor.Dimension dimension : descriptor.getDimensions()) {
+			dsd.addProperty(DataCubeOntology.component, dsdModel.createResource(DataCubeOntology.ComponentSpecification).addProperty(DataCubeOntology.dimension, dsdModel.createResource(dimension.propertyURI())));
+		}
+		dsd.addProperty(DataCubeOntology.component, dsdModel.createResource(DataCubeOntology.ComponentSpecification).addProperty(DataCubeOntology.measure, dsdModel.createResource(descriptor.getMeasureURI())));
+		return dsdModel;
+	}
+}
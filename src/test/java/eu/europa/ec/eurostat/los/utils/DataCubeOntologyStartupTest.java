@@ -0,0 +1,61 @@
+package eu.europa.ec.eurostat.los.utils;
+
+import java.io.File;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Arrays;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.Assume;
+import org.junit.Test;
+
+/**
+ * Measures the class initialization time of the Data Cube vocabulary, compared with the original ontology model based version.
+ * Each class is initialized in a fresh class loader, so that the Jena classes it needs are loaded and initialized again.
+ *
+ * The benchmark takes several seconds, so it only runs when the <code>pop5.benchmark</code> system property is set:
+ * <code>mvn test -Dtest=DataCubeOntologyStartupTest -Dpop5.benchmark=true</code>.
+ */
+public class DataCubeOntologyStartupTest {
+
+	private static Logger logger = LogManager.getLogger(DataCubeOntologyStartupTest.class);
+
+	private static final int RUNS = 5;
+
+	@Test
+	public void testClassInitialization() throws Exception {
+
+		Assume.assumeTrue("Benchmark skipped, set pop5.benchmark to run it", Boolean.getBoolean("pop5.benchmark"));
+		long baseline = medianInitializationTime(BaselineDataCubeOntology.class.getName());
+		long current = medianInitializationTime(DataCubeOntology.class.getName());
+		logger.info("Class initialization time (median of " + RUNS + " runs): ontology model " + baseline / 1000000 + " ms, vocabulary " + current / 1000000 + " ms");
+	}
+
+	private static long medianInitializationTime(String className) throws Exception {
+
+		long[] times = new long[RUNS];
+		for (int run = 0; run < RUNS; run++) {
+			ClassLoader contextLoader = Thread.currentThread().getContextClassLoader();
+			try (URLClassLoader loader = new URLClassLoader(getClassPath(), ClassLoader.getSystemClassLoader().getParent())) {
+				// Service lookups (Jena, Log4j) use the context class loader
+				Thread.currentThread().setContextClassLoader(loader);
+				long start = System.nanoTime();
+				Class.forName(className, true, loader);
+				times[run] = System.nanoTime() - start;
+			} finally {
+				Thread.currentThread().setContextClassLoader(contextLoader);
+			}
+		}
+		Arrays.sort(times);
+		return times[RUNS / 2];
+	}
+
+	private static URL[] getClassPath() throws Exception {
+
+		String[] entries = System.getProperty("java.class.path").split(File.pathSeparator);
+		URL[] urls = new URL[entries.length];
+		for (int index = 0; index < entries.length; index++) urls[index] = new File(entries[index]).toURI().toURL();
+		return urls;
+	}
+}
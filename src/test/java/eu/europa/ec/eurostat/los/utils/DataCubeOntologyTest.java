@@ -0,0 +1,35 @@
+package eu.europa.ec.eurostat.los.utils;
+
+import static org.junit.Assert.assertEquals;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.rdf.model.Resource;
+import org.junit.Test;
+
+/**
+ * Checks that the Data Cube vocabulary defines the same terms as the original ontology model based version.
+ */
+public class DataCubeOntologyTest {
+
+	@Test
+	public void testTerms() throws Exception {
+
+		for (Field baselineField : BaselineDataCubeOntology.class.getFields()) {
+			if (!Modifier.isStatic(baselineField.getModifiers()) || !Resource.class.isAssignableFrom(baselineField.getType())) continue;
+			Resource term = (Resource) DataCubeOntology.class.getField(baselineField.getName()).get(null);
+			assertEquals(baselineField.getName(), ((Resource) baselineField.get(null)).getURI(), term.getURI());
+		}
+	}
+
+	@Test
+	public void testNodes() throws Exception {
+
+		for (Field nodeField : DataCubeOntology.Nodes.class.getFields()) {
+			Resource term = (Resource) DataCubeOntology.class.getField(nodeField.getName()).get(null);
+			assertEquals(nodeField.getName(), term.asNode(), (Node) nodeField.get(null));
+		}
+	}
+}
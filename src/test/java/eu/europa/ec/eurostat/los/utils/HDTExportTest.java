@@ -0,0 +1,45 @@
+package eu.europa.ec.eurostat.los.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.vocabulary.RDFS;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.rdfhdt.hdt.hdt.HDT;
+import org.rdfhdt.hdt.hdt.HDTManager;
+
+/**
+ * Converts a small model to HDT, which checks that the HDT library runs on the Jena version of the project.
+ */
+public class HDTExportTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testWrite() throws Exception {
+
+		Model model = ModelFactory.createDefaultModel();
+		Resource dataSet = model.createResource("http://example.org/dataSet", DataCubeOntology.DataSet);
+		dataSet.addProperty(RDFS.label, model.createLiteral("Data set", "en"));
+		dataSet.addProperty(DataCubeOntology.structure, model.createResource("http://example.org/dsd"));
+
+		String turtleFileName = new File(folder.getRoot(), "ds-test.ttl").getPath();
+		HDTExport.write(model, turtleFileName, true, "http://example.org/");
+
+		String hdtFileName = HDTExport.getHDTFileName(turtleFileName);
+		assertTrue(new File(hdtFileName).exists());
+		assertTrue(new File(hdtFileName + ".index.v1-1").exists());
+		try (HDT hdt = HDTManager.mapIndexedHDT(hdtFileName, null)) {
+			assertEquals(3, hdt.getTriples().getNumberOfElements());
+			assertTrue(hdt.search("http://example.org/dataSet", RDFS.label.getURI(), "").hasNext());
+		}
+	}
+}